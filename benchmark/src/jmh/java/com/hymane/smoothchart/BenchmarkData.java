@@ -0,0 +1,59 @@
+package com.hymane.smoothchart;
+
+import java.util.Random;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-30
+ * Description: 基准测试共用的数据，固定随机种子，每次运行的数据相同
+ */
+final class BenchmarkData {
+    static final float LEFT = 48;
+    static final float TOP = 32;
+    static final float WIDTH = 1080;
+    static final float HEIGHT = 600;
+
+    private BenchmarkData() {
+        /* cannot be instantiated */
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /***
+     * 随机游走的节点数值
+     */
+    static float[] randomWalk(int size) {
+        final Random random = new Random(size);
+        final float[] values = new float[size];
+        float value = 0;
+        for (int i = 0; i < size; i++) {
+            value += random.nextFloat() - 0.5f;
+            values[i] = value;
+        }
+        return values;
+    }
+
+    static SeriesData series(int size) {
+        final SeriesData data = new SeriesData();
+        final float[] values = randomWalk(size);
+        data.set(values, 0, size, null);
+        return data;
+    }
+
+    /***
+     * 与CurveGeometry相同的方式投影全部节点，mPointX和mPointY分别保存x、y坐标
+     */
+    static float[][] project(SeriesData data) {
+        final int size = data.size();
+        final int[] pointIndex = new int[size];
+        for (int i = 0; i < size; i++) {
+            pointIndex[i] = i;
+        }
+        final float[] pointX = new float[size];
+        final float[] pointY = new float[size];
+        final float dY = data.max() - data.min() > 0 ? data.max() - data.min() : 2;
+        CurveMath.project(data, pointIndex, size, LEFT, 0, WIDTH / Math.max(1, size - 1),
+                TOP + HEIGHT, data.min(), HEIGHT / dY, pointX, pointY);
+        return new float[][]{pointX, pointY};
+    }
+}
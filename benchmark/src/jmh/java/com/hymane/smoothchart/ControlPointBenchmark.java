@@ -0,0 +1,45 @@
+package com.hymane.smoothchart;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-30
+ * Description: 按SMOOTHNESS计算全部曲线段的贝塞尔控制点
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ControlPointBenchmark {
+    @Param({"100", "10000", "100000", "1000000"})
+    public int size;
+
+    private float[] mPointX;
+    private float[] mPointY;
+    private final float[] mControl = new float[4];
+
+    @Setup
+    public void setUp() {
+        final float[][] points = BenchmarkData.project(BenchmarkData.series(size));
+        mPointX = points[0];
+        mPointY = points[1];
+    }
+
+    @Benchmark
+    public float controlPoints() {
+        final float[] control = mControl;
+        float sum = 0;
+        for (int i = 1; i < size; i++) {
+            CurveMath.controlPoints(mPointX, mPointY, i, size, control);
+            sum += control[0] + control[1] + control[2] + control[3];
+        }
+        return sum;
+    }
+}
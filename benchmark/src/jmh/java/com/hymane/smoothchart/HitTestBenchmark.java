@@ -0,0 +1,72 @@
+package com.hymane.smoothchart;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-30
+ * Description: 点击查找最近节点，对比二分查找和原来checkClicked的逐个比较
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HitTestBenchmark {
+    private static final int QUERIES = 1024;//必须是2的幂
+    private static final float RADIUS = 35;//与SmoothLineChartView.TOUCH_MIN_DISTANCE相同
+
+    @Param({"100", "10000", "100000", "1000000"})
+    public int size;
+
+    private float[] mPointX;
+    private float[] mPointY;
+    private final float[] mQueryX = new float[QUERIES];
+    private final float[] mQueryY = new float[QUERIES];
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        final float[][] points = BenchmarkData.project(BenchmarkData.series(size));
+        mPointX = points[0];
+        mPointY = points[1];
+        //在节点附近随机点击
+        final Random random = new Random(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            final int index = random.nextInt(size);
+            mQueryX[i] = mPointX[index] + (random.nextFloat() - 0.5f) * RADIUS;
+            mQueryY[i] = mPointY[index] + (random.nextFloat() - 0.5f) * RADIUS;
+        }
+    }
+
+    @Benchmark
+    public int binarySearch() {
+        final int query = mNext++ & (QUERIES - 1);
+        return CurveMath.findNearest(mPointX, mPointY, size, mQueryX[query], mQueryY[query], RADIUS);
+    }
+
+    /***
+     * 原来checkClicked的做法，返回第一个在范围内的节点
+     */
+    @Benchmark
+    public int linearScan() {
+        final int query = mNext++ & (QUERIES - 1);
+        final float x = mQueryX[query];
+        final float y = mQueryY[query];
+        for (int i = 0; i < size; i++) {
+            final float pX = mPointX[i];
+            final float pY = mPointY[i];
+            if (x >= pX - RADIUS && x < pX + RADIUS
+                    && y >= pY - RADIUS && y < pY + RADIUS) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,81 @@
+package com.hymane.smoothchart;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-30
+ * Description: 节点最大最小值，对比逐个遍历、重建线段树、滑动窗口中追加节点和可见区间查询
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MinMaxBenchmark {
+    @Param({"100", "10000", "100000", "1000000"})
+    public int size;
+
+    private float[] mValues;
+    private final MinMaxTree mTree = new MinMaxTree();
+    private SeriesData mWindow;
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        mValues = BenchmarkData.randomWalk(size);
+        //窗口已满，每次追加都会淘汰最旧的节点
+        mWindow = new SeriesData();
+        mWindow.setWindowSize(size);
+        mWindow.set(mValues, 0, size, null);
+        //再追加半个窗口，头部移到数组中间，windowRange查询的区间跨过数组末尾
+        for (int i = 0; i < size / 2; i++) {
+            mWindow.add(mValues[i], null);
+        }
+        mNext = size / 2;
+    }
+
+    /***
+     * 原来每次删除节点时的做法
+     */
+    @Benchmark
+    public float linearScan() {
+        final float[] values = mValues;
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        return max - min;
+    }
+
+    @Benchmark
+    public float treeBuild() {
+        mTree.build(mValues, 0, size);
+        return mTree.max() - mTree.min();
+    }
+
+    @Benchmark
+    public float windowAppend() {
+        final int next = mNext;
+        mNext = next + 1 == size ? 0 : next + 1;
+        mWindow.add(mValues[next], null);
+        return mWindow.max() - mWindow.min();
+    }
+
+    /***
+     * 平移时按可见区间自动调整y轴范围，区间为全部节点的一半并跨过环形缓冲区末尾
+     */
+    @Benchmark
+    public float windowRange() {
+        final int from = size / 4;
+        final int to = from + size / 2;
+        return mWindow.get(mWindow.maxIndex(from, to)) - mWindow.get(mWindow.minIndex(from, to));
+    }
+}
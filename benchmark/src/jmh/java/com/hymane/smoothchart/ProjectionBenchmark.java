@@ -0,0 +1,50 @@
+package com.hymane.smoothchart;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-30
+ * Description: 节点数值到像素坐标的投影
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProjectionBenchmark {
+    @Param({"100", "10000", "100000", "1000000"})
+    public int size;
+
+    private SeriesData mData;
+    private int[] mPointIndex;
+    private float[] mPointX;
+    private float[] mPointY;
+    private float mStepX;
+    private float mStepY;
+
+    @Setup
+    public void setUp() {
+        mData = BenchmarkData.series(size);
+        mPointIndex = new int[size];
+        for (int i = 0; i < size; i++) {
+            mPointIndex[i] = i;
+        }
+        mPointX = new float[size];
+        mPointY = new float[size];
+        mStepX = BenchmarkData.WIDTH / Math.max(1, size - 1);
+        mStepY = BenchmarkData.HEIGHT / (mData.max() - mData.min());
+    }
+
+    @Benchmark
+    public float project() {
+        CurveMath.project(mData, mPointIndex, size, BenchmarkData.LEFT, 0, mStepX,
+                BenchmarkData.TOP + BenchmarkData.HEIGHT, mData.min(), mStepY, mPointX, mPointY);
+        return mPointY[size - 1];
+    }
+}
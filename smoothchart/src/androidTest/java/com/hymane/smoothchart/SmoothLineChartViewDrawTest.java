@@ -0,0 +1,104 @@
+package com.hymane.smoothchart;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 绘制过程的分配测试，需要在设备上运行
+ */
+@RunWith(AndroidJUnit4.class)
+public class SmoothLineChartViewDrawTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 600;
+
+    @Test
+    public void draw_doesNotAllocateAfterWarmUp() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        SmoothLineChartView chartView = new SmoothLineChartView(context);
+        float[] values = new float[500];
+        String[] labels = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) Math.sin(i / 10f) * 10 + 50;
+            labels[i] = "3-" + (i % 31 + 10);
+        }
+        chartView.setData(values, 0, values.length);
+        for (int i = 0; i < labels.length; i++) {
+            chartView.add(values[i], labels[i]);
+        }
+        chartView.setNodeStyle(SmoothLineChartView.NODE_STYLE_RING);
+        //节点过密，不绘制节点
+        assertEquals(0, assertNoAllocationAfterWarmUp(chartView).getNodesDrawn());
+    }
+
+    /***
+     * 节点间距大于节点直径，绘制圆环的外圆和内圆
+     */
+    @Test
+    public void draw_ringNodes_doesNotAllocate() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        SmoothLineChartView chartView = new SmoothLineChartView(context);
+        float[] values = new float[20];
+        String[] labels = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) Math.sin(i / 3f) * 10 + 50;
+            labels[i] = "3-" + (i + 10);
+        }
+        chartView.addAll(values, labels);
+        chartView.setNodeStyle(SmoothLineChartView.NODE_STYLE_RING);
+        assertEquals(values.length, assertNoAllocationAfterWarmUp(chartView).getNodesDrawn());
+    }
+
+    /***
+     * 可见节点的x刻度远多于文字宽度缓存的容量，抽样后仍有约2倍宽度的节点
+     */
+    @Test
+    public void draw_manyDistinctLabels_doesNotAllocate() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        SmoothLineChartView chartView = new SmoothLineChartView(context);
+        float[] values = new float[5000];
+        String[] labels = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) Math.sin(i / 10f) * 10 + 50;
+            labels[i] = "#" + i;
+        }
+        chartView.addAll(values, labels);
+        assertNoAllocationAfterWarmUp(chartView);
+    }
+
+    /***
+     * 通过视图的分配计数逐帧检查，返回最后一帧的统计
+     */
+    private static FrameMetrics assertNoAllocationAfterWarmUp(SmoothLineChartView chartView) {
+        chartView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        chartView.layout(0, 0, WIDTH, HEIGHT);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        FrameMetrics metrics = new FrameMetrics();
+
+        //第一次绘制会计算坐标和缓存文字
+        chartView.draw(canvas);
+        chartView.draw(canvas);
+
+        chartView.setFrameMetricsEnabled(true);
+        chartView.setAllocationCountingEnabled(true);
+        try {
+            for (int i = 0; i < 10; i++) {
+                chartView.draw(canvas);
+                chartView.getFrameMetrics(metrics);
+                assertEquals("frame " + i, 0, metrics.getAllocations());
+            }
+        } finally {
+            chartView.setAllocationCountingEnabled(false);
+        }
+        return metrics;
+    }
+}
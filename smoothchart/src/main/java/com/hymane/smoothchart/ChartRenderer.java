@@ -0,0 +1,223 @@
+package com.hymane.smoothchart;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.view.View;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-05-06
+ * Description: 离屏绘制图表，用于批量生成缩略图，不需要把视图添加到窗口。
+ * 内部复用未添加到窗口的SmoothLineChartView，绘制代码与{@link SmoothLineChartView#draw(Canvas)}相同，
+ * 每个视图自带的画笔、路径和坐标数组在多次绘制之间复用。可以在任意线程调用，
+ * 同时绘制的线程各自取用一个视图，生成的位图调用{@link #recycle(Bitmap)}后回收复用
+ */
+public final class ChartRenderer {
+    private static final int MAX_POOLED_BITMAPS = 8;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /***
+     * 设置离屏视图的样式，每个视图创建时调用一次，可能在没有Looper的绘制线程调用。
+     * 只能设置样式和数据：依赖Choreographer的功能在离屏视图上不可用，
+     * 动画、拖动查看和可见区间手势在调用后被关闭，开启后台线程写入会抛出IllegalStateException
+     */
+    public interface Styler {
+        void apply(SmoothLineChartView view);
+    }
+
+    /***
+     * 批量绘制时每张图完成后在绘制线程回调，需要自行切换到UI线程
+     */
+    public interface Callback {
+        void onRendered(int index, Bitmap bitmap);
+    }
+
+    private final Context mContext;
+    private final Styler mStyler;
+    private final int mThreads;
+    //空闲的离屏视图，每个视图同一时刻只被一个线程使用
+    private final ConcurrentLinkedQueue<SmoothLineChartView> mViews = new ConcurrentLinkedQueue<>();
+    //回收的位图，只复用尺寸相同的位图
+    private final ArrayDeque<Bitmap> mBitmaps = new ArrayDeque<>();
+    private ExecutorService mExecutor;
+
+    public ChartRenderer(Context context) {
+        this(context, null, Runtime.getRuntime().availableProcessors());
+    }
+
+    /***
+     * @param styler 为空时使用默认样式
+     * @param threads 批量绘制的线程数
+     */
+    public ChartRenderer(Context context, Styler styler, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads should be positive");
+        }
+        mContext = context.getApplicationContext();
+        mStyler = styler;
+        mThreads = threads;
+    }
+
+    /***
+     * 绘制节点到新的或回收的位图
+     */
+    public Bitmap render(float[] values, int width, int height) {
+        final Bitmap bitmap = obtainBitmap(width, height);
+        render(new Canvas(bitmap), values, null, width, height);
+        return bitmap;
+    }
+
+    public Bitmap render(SeriesSource source, int width, int height) {
+        final Bitmap bitmap = obtainBitmap(width, height);
+        render(new Canvas(bitmap), null, source, width, height);
+        return bitmap;
+    }
+
+    /***
+     * 绘制节点到画布，从画布当前的原点开始绘制width * height大小的图表
+     */
+    public void render(Canvas canvas, float[] values, int width, int height) {
+        render(canvas, values, null, width, height);
+    }
+
+    public void render(Canvas canvas, SeriesSource source, int width, int height) {
+        render(canvas, null, source, width, height);
+    }
+
+    /***
+     * 在多个线程中并行绘制，每张图完成后回调，不等待全部完成
+     */
+    public void renderAll(final List<float[]> values, final int width, final int height, final Callback callback) {
+        final ExecutorService executor = executor();
+        for (int i = 0, n = values.size(); i < n; i++) {
+            final int index = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onRendered(index, render(values.get(index), width, height));
+                }
+            });
+        }
+    }
+
+    /***
+     * 回收不再显示的位图，之后绘制相同尺寸的图表时复用
+     */
+    public void recycle(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        synchronized (mBitmaps) {
+            if (mBitmaps.size() < MAX_POOLED_BITMAPS) {
+                mBitmaps.addLast(bitmap);
+                return;
+            }
+        }
+        bitmap.recycle();
+    }
+
+    /***
+     * 停止批量绘制线程并释放复用的视图和位图，释放后仍然可以继续绘制
+     */
+    public void release() {
+        synchronized (this) {
+            if (mExecutor != null) {
+                mExecutor.shutdown();
+                mExecutor = null;
+            }
+        }
+        mViews.clear();
+        synchronized (mBitmaps) {
+            for (Bitmap bitmap : mBitmaps) {
+                bitmap.recycle();
+            }
+            mBitmaps.clear();
+        }
+    }
+
+    private void render(Canvas canvas, float[] values, SeriesSource source, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height should be positive");
+        }
+        SmoothLineChartView view = mViews.poll();
+        if (view == null) {
+            view = createView();
+        }
+        try {
+            if (values != null) {
+                view.setData(values, 0, values.length);
+            } else {
+                view.setSeriesSource(source);
+            }
+            if (view.getMeasuredWidth() != width || view.getMeasuredHeight() != height) {
+                view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+                view.layout(0, 0, width, height);
+            }
+            view.draw(canvas);
+        } finally {
+            //不持有外部数据源，避免阻止文件映射被回收
+            if (source != null) {
+                view.setSeriesSource(null);
+            }
+            mViews.offer(view);
+        }
+    }
+
+    private SmoothLineChartView createView() {
+        final SmoothLineChartView view = new SmoothLineChartView(mContext);
+        if (mStyler != null) {
+            mStyler.apply(view);
+        }
+        if (view.hasIngestQueue()) {
+            throw new IllegalStateException("Styler should not enable the ingest queue of an offscreen view");
+        }
+        //离屏绘制一次完成：没有vsync驱动的动画和触摸手势，也不需要缓存图层和后台计算
+        view.setAnimationEnabled(false);
+        view.setScrubEnabled(false);
+        view.setViewportEnabled(false);
+        view.setAsyncGeometry(false);
+        view.setLayerCacheEnabled(false);
+        return view;
+    }
+
+    private Bitmap obtainBitmap(int width, int height) {
+        synchronized (mBitmaps) {
+            for (Iterator<Bitmap> it = mBitmaps.iterator(); it.hasNext(); ) {
+                final Bitmap bitmap = it.next();
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    it.remove();
+                    bitmap.eraseColor(Color.TRANSPARENT);
+                    return bitmap;
+                }
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private synchronized ExecutorService executor() {
+        if (mExecutor == null) {
+            mExecutor = Executors.newFixedThreadPool(mThreads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, "SmoothChart-render-" + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mExecutor;
+    }
+}
@@ -0,0 +1,227 @@
+package com.hymane.smoothchart;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.BitmapDrawable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-05-07
+ * Description: 所有图表共用的资源缓存。标签位图按来源、屏幕密度和旋转角度缓存并计数引用，
+ * 同一个标签只解码和旋转一次；没有图表使用的位图按LRU保留，内存紧张时在onTrimMemory中释放。
+ * 测量过的文字宽度按字体和字号共用，每种字体按LRU保留有限个数。可以在任意线程调用
+ */
+final class ChartResources implements ComponentCallbacks2 {
+    static final int ROTATION_NONE = 0;
+    static final int ROTATION_180 = 180;
+    private static final int MAX_UNUSED_BYTES = 4 * 1024 * 1024;//没有图表使用的位图最多保留的字节数
+    private static final int MAX_FONTS = 16;//最多缓存文字宽度的字体个数
+    private static final int MAX_TEXT_WIDTHS = 2048;//每种字体最多缓存的文字宽度个数
+
+    private static ChartResources sInstance;
+
+    //所有标签位图，包括正在使用的和等待回收的
+    private final HashMap<Tag, Tag> mTags = new HashMap<>();
+    //引用计数为0的标签位图，按最近使用顺序排列
+    private final LinkedHashMap<Tag, Tag> mUnused = new LinkedHashMap<>(16, 0.75f, true);
+    private int mUnusedBytes;
+    //按字体和字号缓存的文字宽度，都按最近使用顺序淘汰
+    private final LinkedHashMap<Font, LinkedHashMap<String, Integer>> mTextWidths =
+            new LinkedHashMap<Font, LinkedHashMap<String, Integer>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Font, LinkedHashMap<String, Integer>> eldest) {
+                    return size() > MAX_FONTS;
+                }
+            };
+    private final Font mFontKey = new Font();//查询时复用，不分配对象
+    private final Rect mBounds = new Rect();
+
+    static synchronized ChartResources get(Context context) {
+        if (sInstance == null) {
+            sInstance = new ChartResources();
+            //布局编辑器预览(isInEditMode)时没有Application，注册到传入的Context
+            final Context application = context.getApplicationContext();
+            (application != null ? application : context).registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    private ChartResources() {
+    }
+
+    /***
+     * 获取标签位图并增加引用计数，不再使用时调用{@link #releaseTag(Tag)}
+     * @param source 图片资源id(Integer)或位图(Bitmap)，位图按对象区分
+     * @param rotation 旋转角度，{@link #ROTATION_NONE}或{@link #ROTATION_180}
+     */
+    synchronized Tag acquireTag(Resources resources, Object source, int rotation) {
+        final int density = source instanceof Bitmap ? ((Bitmap) source).getDensity()
+                : resources.getDisplayMetrics().densityDpi;
+        final Tag key = new Tag(source, density, rotation);
+        Tag tag = mTags.get(key);
+        if (tag == null) {
+            tag = key;
+            tag.mBitmap = load(resources, source, rotation);
+            tag.mBytes = tag.mBitmap.getByteCount();
+            mTags.put(tag, tag);
+        } else if (tag.mRefCount == 0) {
+            mUnused.remove(tag);
+            mUnusedBytes -= tag.mBytes;
+        }
+        tag.mRefCount++;
+        return tag;
+    }
+
+    synchronized void releaseTag(Tag tag) {
+        if (tag.mRefCount <= 0) {
+            throw new IllegalStateException("tag is not acquired");
+        }
+        if (--tag.mRefCount == 0) {
+            mUnused.put(tag, tag);
+            mUnusedBytes += tag.mBytes;
+            trimUnused(MAX_UNUSED_BYTES);
+        }
+    }
+
+    /***
+     * 文字边界的宽度，与Paint.getTextBounds()的结果相同，按画笔的字体和字号共用，命中时不分配对象
+     */
+    synchronized int textWidth(Paint paint, String text) {
+        mFontKey.mTypeface = paint.getTypeface();
+        mFontKey.mTextSize = paint.getTextSize();
+        LinkedHashMap<String, Integer> widths = mTextWidths.get(mFontKey);
+        if (widths == null) {
+            widths = new LinkedHashMap<String, Integer>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                    return size() > MAX_TEXT_WIDTHS;
+                }
+            };
+            final Font font = new Font();
+            font.mTypeface = mFontKey.mTypeface;
+            font.mTextSize = mFontKey.mTextSize;
+            mTextWidths.put(font, widths);
+        }
+        final Integer cached = widths.get(text);
+        if (cached != null) {
+            return cached;
+        }
+        paint.getTextBounds(text, 0, text.length(), mBounds);
+        final int width = mBounds.width();
+        widths.put(text, width);
+        return width;
+    }
+
+    /***
+     * 按最近使用顺序释放没有图表使用的位图，直到总字节数不超过maxBytes
+     */
+    private void trimUnused(int maxBytes) {
+        final Iterator<Tag> iterator = mUnused.keySet().iterator();
+        while (iterator.hasNext() && (maxBytes == 0 || mUnusedBytes > maxBytes)) {
+            final Tag tag = iterator.next();
+            iterator.remove();
+            mTags.remove(tag);
+            mUnusedBytes -= tag.mBytes;
+            //位图可能来自Resources的缓存，不调用recycle()
+            tag.mBitmap = null;
+        }
+    }
+
+    private static Bitmap load(Resources resources, Object source, int rotation) {
+        final Bitmap bitmap = source instanceof Bitmap ? (Bitmap) source
+                : ((BitmapDrawable) resources.getDrawable((Integer) source)).getBitmap();
+        if (rotation == ROTATION_NONE) {
+            return bitmap;
+        }
+        final Matrix matrix = new Matrix();
+        matrix.postRotate(rotation);
+        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+    }
+
+    @Override
+    public synchronized void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            trimUnused(0);
+            mTextWidths.clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            trimUnused(mUnusedBytes / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /***
+     * 文字宽度缓存的键，字体为空表示默认字体
+     */
+    private static final class Font {
+        Typeface mTypeface;
+        float mTextSize;
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Font)) {
+                return false;
+            }
+            final Font other = (Font) o;
+            return mTextSize == other.mTextSize
+                    && (mTypeface == null ? other.mTypeface == null : mTypeface.equals(other.mTypeface));
+        }
+
+        @Override
+        public int hashCode() {
+            return (mTypeface == null ? 0 : mTypeface.hashCode()) * 31 + Float.floatToIntBits(mTextSize);
+        }
+    }
+
+    /***
+     * 一个缓存的标签位图，按来源、密度和旋转角度区分
+     */
+    static final class Tag {
+        final Object mSource;
+        final int mDensity;
+        final int mRotation;
+        Bitmap mBitmap;
+        int mBytes;//加载时的字节数，位图被外部回收后getByteCount()会变化
+        int mRefCount;
+
+        Tag(Object source, int density, int rotation) {
+            mSource = source;
+            mDensity = density;
+            mRotation = rotation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Tag)) {
+                return false;
+            }
+            final Tag other = (Tag) o;
+            return mSource.equals(other.mSource) && mDensity == other.mDensity && mRotation == other.mRotation;
+        }
+
+        @Override
+        public int hashCode() {
+            return (mSource.hashCode() * 31 + mDensity) * 31 + mRotation;
+        }
+    }
+}
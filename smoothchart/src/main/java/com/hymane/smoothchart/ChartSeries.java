@@ -0,0 +1,178 @@
+package com.hymane.smoothchart;
+
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-27
+ * Description: 附加曲线，通过{@link SmoothLineChartView#addSeries(ChartSeries)}与主曲线画在同一个视图中，
+ * 共用y轴范围、可见区间和x刻度，每条曲线有自己的颜色和节点样式
+ */
+public class ChartSeries {
+    final SeriesData mData = new SeriesData();
+    final CurveGeometry mGeometry = new CurveGeometry();
+    final Paint mLinePaint;//曲线画笔
+    final Paint mAreaPaint;//投影区域画笔
+    final Paint mNodePaint;//节点画笔，圆头画点，线宽为节点直径
+    final Paint mInnerNodePaint;//圆环内圆画笔
+    private int mLineColor;
+    private int mCircleColor;
+    private int mInnerCircleColor;
+    private int mDrawAreaColor;
+    private int mNodeStyle;
+    private boolean mEnableDrawArea;
+    boolean mDataDirty = true;//已有节点是否被修改，需要重新计算全部坐标
+    SmoothLineChartView mChart;//添加到的视图
+
+    public ChartSeries(int color) {
+        mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mLinePaint.setStyle(Paint.Style.STROKE);
+        mAreaPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mAreaPaint.setStyle(Paint.Style.FILL);
+        mNodePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mNodePaint.setStyle(Paint.Style.STROKE);
+        mNodePaint.setStrokeCap(Paint.Cap.ROUND);
+        mInnerNodePaint = new Paint(mNodePaint);
+        mNodeStyle = SmoothLineChartView.NODE_STYLE_CIRCLE;
+        mEnableDrawArea = true;
+        setLineColor(color);
+        setCircleColor(color);
+        setDrawAreaColor((color & 0xFFFFFF) | 0x10000000);
+        setInnerCircleColor(Color.WHITE);
+    }
+
+    /***
+     * 设置节点数值
+     * @param values 节点数值，会被复制，调用后可以复用
+     */
+    public void setData(float[] values, int offset, int count) {
+        if (values == null) {
+            throw new IllegalArgumentException("valuse can not be null");
+        }
+        mData.set(values, offset, count, null);
+        mDataDirty = true;
+        notifyChanged();
+    }
+
+    public void add(float value) {
+        if (mData.add(value, null)) {
+            mDataDirty = true;
+        }
+        notifyChanged();
+    }
+
+    /***
+     * 追加带时间戳的节点，用于时间轴
+     */
+    public void push(float value, long timestamp) {
+        if (mData.push(value, timestamp)) {
+            mDataDirty = true;
+        }
+        notifyChanged();
+    }
+
+    public void removeAll() {
+        mData.clear();
+        mDataDirty = true;
+        notifyChanged();
+    }
+
+    public int size() {
+        return mData.size();
+    }
+
+    public float get(int index) {
+        return mData.get(index);
+    }
+
+    /***
+     * 与主曲线相同，超过窗口的旧节点会被淘汰
+     */
+    public void setWindowSize(int windowSize) {
+        mData.setWindowSize(windowSize);
+        mDataDirty = true;
+        notifyChanged();
+    }
+
+    public int getLineColor() {
+        return mLineColor;
+    }
+
+    public void setLineColor(int lineColor) {
+        this.mLineColor = lineColor;
+        mLinePaint.setColor(lineColor);
+        invalidate();
+    }
+
+    public int getCircleColor() {
+        return mCircleColor;
+    }
+
+    public void setCircleColor(int circleColor) {
+        this.mCircleColor = circleColor;
+        mNodePaint.setColor(circleColor);
+        invalidate();
+    }
+
+    public int getInnerCircleColor() {
+        return mInnerCircleColor;
+    }
+
+    public void setInnerCircleColor(int innerCircleColor) {
+        this.mInnerCircleColor = innerCircleColor;
+        mInnerNodePaint.setColor(innerCircleColor);
+        invalidate();
+    }
+
+    public int getDrawAreaColor() {
+        return mDrawAreaColor;
+    }
+
+    public void setDrawAreaColor(int drawAreaColor) {
+        this.mDrawAreaColor = drawAreaColor;
+        mAreaPaint.setColor(drawAreaColor);
+        invalidate();
+    }
+
+    public boolean isEnableDrawArea() {
+        return mEnableDrawArea;
+    }
+
+    public void enableDrawArea(boolean enableDrawArea) {
+        this.mEnableDrawArea = enableDrawArea;
+        invalidate();
+    }
+
+    public int getNodeStyle() {
+        return mNodeStyle;
+    }
+
+    public void setNodeStyle(@SmoothLineChartView.NodeStyle int nodeStyle) {
+        this.mNodeStyle = nodeStyle;
+        invalidate();
+    }
+
+    /***
+     * 添加到视图时按视图的像素密度设置线宽
+     */
+    void setStrokeSize(float circleSize, float strokeSize) {
+        mLinePaint.setStrokeWidth(strokeSize);
+        //与主曲线节点大小相同：圆的半径为circleSize/2，外侧再加半个线宽
+        mNodePaint.setStrokeWidth(circleSize + strokeSize);
+        mInnerNodePaint.setStrokeWidth(circleSize - strokeSize);
+    }
+
+    private void notifyChanged() {
+        if (mChart != null) {
+            mChart.onSeriesChanged();
+        }
+    }
+
+    private void invalidate() {
+        if (mChart != null) {
+            mChart.invalidateLayers();
+        }
+    }
+}
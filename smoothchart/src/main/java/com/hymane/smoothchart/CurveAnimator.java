@@ -0,0 +1,238 @@
+package com.hymane.smoothchart;
+
+import android.view.Choreographer;
+
+import java.util.Arrays;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-05-03
+ * Description: 数据变化时的过渡动画，由Choreographer按vsync驱动。
+ * 数据变化前记录正在显示的坐标点，目标曲线计算完成后把起点对齐到目标坐标点，
+ * 每帧只在复用的原始类型数组中插值并重建路径，不重新投影和抽样，也不分配对象。
+ * 插值在像素坐标中进行，y轴范围的变化也会平滑过渡
+ */
+class CurveAnimator implements Choreographer.FrameCallback {
+    //整体变形：新旧节点按在曲线中的相对位置对应
+    static final int TRANSITION_MORPH = 1;
+    //追加滑入：新旧节点按位置对应，新节点从原来的最后一个节点滑出
+    static final int TRANSITION_SLIDE = 2;
+
+    private final Runnable mInvalidate;
+    private final CurveGeometry mFrame = new CurveGeometry();//当前帧的坐标和路径
+    private long mDuration = 300;
+    //数据变化前显示的坐标点和对应的节点位置
+    private float[] mFromX = new float[0];
+    private float[] mFromY = new float[0];
+    private int[] mFromIndex = new int[0];
+    private int mFromCount;
+    private int mFromSize;//数据变化前的节点个数
+    private int mEvicted;//记录之后被淘汰的节点个数，追加滑入时用于对齐
+    private int mTransition;
+    private boolean mCaptured;//已记录起点，等待目标曲线
+    private long mCaptureGeneration;
+    //与目标坐标点一一对应的起点坐标
+    private float[] mStartX = new float[0];
+    private float[] mStartY = new float[0];
+    private boolean mRunning;
+    private long mTargetGeneration;
+    private long mStartNanos;
+    private float mFraction;
+    private float mFrameFraction = -1;//当前帧路径对应的进度
+    private long mFrameGeneration;
+
+    /***
+     * @param invalidate 每帧进度变化后在UI线程调用，用于刷新视图
+     */
+    CurveAnimator(Runnable invalidate) {
+        mInvalidate = invalidate;
+    }
+
+    void setDuration(long duration) {
+        mDuration = duration;
+    }
+
+    long getDuration() {
+        return mDuration;
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    /***
+     * 数据变化前调用，记录正在显示的曲线作为动画起点，动画进行中时从当前帧开始新的动画
+     * @param shown 正在显示的坐标
+     * @param size 变化前的节点个数
+     * @param generation 变化前的数据版本，版本更新的目标曲线计算完成后动画开始
+     * @return 本次调用是否记录了新的起点，数据修改失败时用于{@link #release(boolean)}
+     */
+    boolean capture(CurveGeometry shown, int size, int transition, long generation) {
+        if (mCaptured) {
+            //同一帧内多次修改，保留最早的起点，只有整体变形优先
+            if (transition == TRANSITION_MORPH) {
+                mTransition = TRANSITION_MORPH;
+            }
+            return false;
+        }
+        final CurveGeometry source = mRunning ? mFrame : shown;
+        final int count = source.mPointCount;
+        if (count == 0 || size == 0) {
+            cancel();
+            return false;
+        }
+        if (mFromX.length < count) {
+            mFromX = new float[count];
+            mFromY = new float[count];
+            mFromIndex = new int[count];
+        }
+        System.arraycopy(source.mPointX, 0, mFromX, 0, count);
+        System.arraycopy(source.mPointY, 0, mFromY, 0, count);
+        System.arraycopy(source.mPointIndex, 0, mFromIndex, 0, count);
+        mFromCount = count;
+        mFromSize = size;
+        mEvicted = 0;
+        mTransition = transition;
+        mCaptureGeneration = generation;
+        mCaptured = true;
+        return true;
+    }
+
+    /***
+     * 记录起点后数据修改失败，放弃本次记录的起点，正在进行的动画不受影响
+     * @param captured {@link #capture(CurveGeometry, int, int, long)}的返回值
+     */
+    void release(boolean captured) {
+        if (captured) {
+            mCaptured = false;
+        }
+    }
+
+    /***
+     * 记录起点后淘汰了最旧的节点
+     */
+    void onEvicted(int count) {
+        if (mCaptured) {
+            mEvicted += count;
+        }
+    }
+
+    /***
+     * 停止动画，直接显示目标曲线
+     */
+    void cancel() {
+        if (mRunning) {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+        mRunning = false;
+        mCaptured = false;
+    }
+
+    /***
+     * 绘制时调用，返回本帧应该绘制的坐标
+     * @param target 计算完成的目标曲线
+     * @return 动画进行中时返回插值后的坐标，否则返回target
+     */
+    CurveGeometry frame(CurveGeometry target) {
+        if (mCaptured && target.mGeneration > mCaptureGeneration) {
+            mCaptured = false;
+            start(target);
+        } else if (mRunning && target.mGeneration != mTargetGeneration && !mCaptured) {
+            //尺寸、可见区间等不需要动画的变化，直接显示目标曲线
+            cancel();
+        }
+        if (!mRunning) {
+            return target;
+        }
+        if (mFrameFraction != mFraction) {
+            mFrameFraction = mFraction;
+            mFrame.interpolate(target, mStartX, mStartY, mFraction);
+            mFrame.mGeneration = ++mFrameGeneration;
+        }
+        return mFrame;
+    }
+
+    private void start(CurveGeometry target) {
+        final int count = target.mPointCount;
+        if (count == 0 || mDuration <= 0) {
+            cancel();
+            return;
+        }
+        if (mStartX.length < count) {
+            final int capacity = Math.max(count, mStartX.length + (mStartX.length >> 1));
+            mStartX = Arrays.copyOf(mStartX, capacity);
+            mStartY = Arrays.copyOf(mStartY, capacity);
+        }
+        alignStart(target);
+        mTargetGeneration = target.mGeneration;
+        mFraction = 0;
+        mFrameFraction = -1;
+        mStartNanos = 0;
+        if (!mRunning) {
+            mRunning = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /***
+     * 按节点位置把记录的起点对齐到目标坐标点，起点之间线性插值，
+     * 目标节点位置单调递增，一次遍历完成
+     */
+    private void alignStart(CurveGeometry target) {
+        final int count = target.mPointCount;
+        final int[] targetIndex = target.mPointIndex;
+        final float[] fromX = mFromX;
+        final float[] fromY = mFromY;
+        final int[] fromIndex = mFromIndex;
+        final int fromCount = mFromCount;
+        //目标节点位置到原节点位置：变形时按比例，滑入时减去淘汰的节点
+        float scale = 1;
+        if (mTransition == TRANSITION_MORPH && target.mSize > 1) {
+            scale = (mFromSize - 1f) / (target.mSize - 1);
+        }
+        final float offset = mTransition == TRANSITION_SLIDE ? mEvicted : 0;
+        final float first = fromIndex[0];
+        final float last = fromIndex[fromCount - 1];
+        int k = 1;
+        for (int i = 0; i < count; i++) {
+            float index = targetIndex[i] * scale + offset;
+            if (index <= first || fromCount == 1) {
+                mStartX[i] = fromX[0];
+                mStartY[i] = fromY[0];
+                continue;
+            }
+            if (index >= last) {
+                //新追加的节点从原来的最后一个节点滑出
+                mStartX[i] = fromX[fromCount - 1];
+                mStartY[i] = fromY[fromCount - 1];
+                continue;
+            }
+            while (fromIndex[k] < index) {
+                k++;
+            }
+            final float t = (index - fromIndex[k - 1]) / (fromIndex[k] - fromIndex[k - 1]);
+            mStartX[i] = fromX[k - 1] + (fromX[k] - fromX[k - 1]) * t;
+            mStartY[i] = fromY[k - 1] + (fromY[k] - fromY[k - 1]) * t;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mStartNanos == 0) {
+            mStartNanos = frameTimeNanos;
+        }
+        final float t = Math.min(1f, (frameTimeNanos - mStartNanos) / (mDuration * 1000000f));
+        //减速插值
+        mFraction = 1 - (1 - t) * (1 - t);
+        if (t >= 1) {
+            mRunning = false;
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+        mInvalidate.run();
+    }
+}
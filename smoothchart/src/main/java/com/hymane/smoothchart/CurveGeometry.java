@@ -0,0 +1,674 @@
+package com.hymane.smoothchart;
+
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-22
+ * Description: 曲线的坐标点和路径缓存，只在数据或布局变化时重新计算。
+ * 不依赖View，既可以在UI线程计算，也可以在后台线程计算后交给UI线程绘制。
+ * 曲线和投影区域按固定宽度的x网格分成多个路径块，只重新生成形状变化的块，
+ * 修改节点只影响附近一两块，平移时没有变化的块只在绘制时平移，路径不变，硬件加速可以复用光栅化结果
+ */
+class CurveGeometry {
+    private static final int MIN_DOWNSAMPLE_POINTS = 16;//少于该节点数时不抽样
+    private static final float TILE_WIDTH = 256;//路径块的宽度，像素
+    private static final long NO_CELL = Long.MIN_VALUE;//追加节点时缩放过的路径块，不在网格上
+
+    //坐标点集合，复用，只在节点数增加时扩容
+    float[] mPointX = new float[0];
+    float[] mPointY = new float[0];
+    int[] mPointIndex = new int[0];//坐标点对应的节点位置
+    int mPointCount;//坐标点个数，抽样后小于节点个数
+    //按x坐标排列的路径块，复用
+    Tile[] mTiles = new Tile[0];
+    int mTileCount;
+    private Tile[] mPrevTiles = new Tile[0];
+    private Tile[] mSpareTiles = new Tile[0];
+    private int mSpareCount;
+    private final Matrix mMatrix = new Matrix();
+    private final float[] mControl = new float[4];//一段曲线的两个控制点
+
+    //曲线绘制区域
+    private float mLeft;
+    private float mTop;
+    private float mWidth;
+    private float mHeight;
+    private float mMinY;
+    private float mMaxY;
+    private int mDownsampleMode;
+    //可见的节点区间[mViewStart, mViewEnd]，mFitAll为true时显示全部节点
+    private boolean mFitAll = true;
+    private float mViewStart;
+    private float mViewEnd;
+    //时间轴：x坐标按时间戳计算，可见区间为[mStartTime, mEndTime]
+    private boolean mTimeAxis;
+    private long mStartTime;
+    private long mEndTime;
+    private boolean mLayoutChanged = true;
+
+    //每个节点的x间距和y轴每单位对应的像素数
+    float mStepX;
+    float mStepY;
+    private float mStart;//绘制区域左边界对应的节点位置
+    long mOriginTime;//时间轴时绘制区域左边界对应的时间
+    int mSize;//已计算坐标的节点个数
+    long mGeneration;//计算时的数据版本，用于判断后台计算结果是否过期
+    private boolean mDownsampled;
+    private boolean mVisibleDownsampled;//可见区间的节点经过抽样
+    //最近一次计算的耗时和参与计算的节点个数，用于FrameMetrics
+    long mProjectionNanos;
+    long mPathNanos;
+    int mPointsProcessed;
+    int mTilesBuilt;//重新生成的路径块个数
+    int mTilesReused;//直接复用的路径块个数
+    private DecimationCache mDecimation;//缩放后才创建
+    //后台计算时由GeometryWorker设置为最新请求的版本，与mGeneration不同时说明请求已过期或被取消，提前结束计算
+    AtomicLong mLatestRequest;
+
+    /***
+     * 设置曲线绘制区域、y轴范围和可见区间，与上次不同时下次更新会重新计算全部曲线
+     */
+    void setLayout(Layout layout) {
+        if (layout.mLeft != mLeft || layout.mTop != mTop || layout.mWidth != mWidth || layout.mHeight != mHeight
+                || layout.mMinY != mMinY || layout.mMaxY != mMaxY || layout.mDownsampleMode != mDownsampleMode
+                || layout.mFitAll != mFitAll || layout.mViewStart != mViewStart || layout.mViewEnd != mViewEnd
+                || layout.mTimeAxis != mTimeAxis || layout.mStartTime != mStartTime || layout.mEndTime != mEndTime) {
+            mLeft = layout.mLeft;
+            mTop = layout.mTop;
+            mWidth = layout.mWidth;
+            mHeight = layout.mHeight;
+            mMinY = layout.mMinY;
+            mMaxY = layout.mMaxY;
+            mDownsampleMode = layout.mDownsampleMode;
+            mFitAll = layout.mFitAll;
+            mViewStart = layout.mViewStart;
+            mViewEnd = layout.mViewEnd;
+            mTimeAxis = layout.mTimeAxis;
+            mStartTime = layout.mStartTime;
+            mEndTime = layout.mEndTime;
+            mLayoutChanged = true;
+        }
+    }
+
+    /***
+     * 更新坐标和路径，只有节点追加且布局没变时增量计算
+     * @param dataChanged 已有节点是否发生过修改、删除或淘汰
+     */
+    void update(SeriesSource data, boolean dataChanged) {
+        mProjectionNanos = 0;
+        mPathNanos = 0;
+        mTilesBuilt = 0;
+        mTilesReused = 0;
+        if (dataChanged || mLayoutChanged || data.size() < mSize) {
+            compute(data);
+        } else if (data.size() > mSize) {
+            append(data);
+        }
+    }
+
+    /***
+     * 清空坐标点，路径块保留到下次计算时按形状复用
+     */
+    void reset() {
+        mSize = 0;
+        mPointCount = 0;
+    }
+
+    /***
+     * 绘制曲线，路径块在生成后平移过的先平移画布
+     */
+    void drawCurve(Canvas canvas, Paint paint) {
+        drawTiles(canvas, paint, false);
+    }
+
+    /***
+     * 绘制曲线投影区域
+     */
+    void drawArea(Canvas canvas, Paint paint) {
+        drawTiles(canvas, paint, true);
+    }
+
+    private void drawTiles(Canvas canvas, Paint paint, boolean area) {
+        if (mPointCount == 0)
+            return;
+        for (int i = 0; i < mTileCount; i++) {
+            final Tile tile = mTiles[i];
+            final Path path = area ? tile.mAreaPath : tile.mPath;
+            if (tile.mOffsetX == 0) {
+                canvas.drawPath(path, paint);
+            } else {
+                final int saveCount = canvas.save();
+                canvas.translate(tile.mOffsetX, 0);
+                canvas.drawPath(path, paint);
+                canvas.restoreToCount(saveCount);
+            }
+        }
+    }
+
+    /***
+     * 第index个节点的x坐标，节点不需要被抽样保留
+     */
+    float nodeX(SeriesSource data, int index) {
+        return mTimeAxis ? timeX(data.getTime(index)) : mLeft + (index - mStart) * mStepX;
+    }
+
+    /***
+     * 时间轴上time对应的x坐标
+     */
+    float timeX(long time) {
+        return mLeft + (time - mOriginTime) * mStepX;
+    }
+
+    boolean isTimeAxis() {
+        return mTimeAxis;
+    }
+
+    /***
+     * 可见区间的节点是否经过抽样，抽样时追加节点可能改变已有坐标点的选择
+     */
+    boolean isVisibleDownsampled() {
+        return mVisibleDownsampled;
+    }
+
+    /***
+     * 时间轴时绘制区域右边界对应的时间
+     */
+    long getEndTime() {
+        return mOriginTime + (long) (mWidth / mStepX);
+    }
+
+    /***
+     * 节点值对应的y坐标
+     */
+    float nodeY(float value) {
+        return mTop + mHeight - (value - mMinY) * mStepY;
+    }
+
+    float getBottom() {
+        return mTop + mHeight;
+    }
+
+    /***
+     * 查找距离(x, y)最近的坐标点，O(log n)
+     * @param radius x和y方向允许的最大距离
+     * @return 坐标点位置，没有找到返回-1
+     */
+    int findNearest(float x, float y, float radius) {
+        return CurveMath.findNearest(mPointX, mPointY, mPointCount, x, y, radius);
+    }
+
+    /***
+     * 第一个x坐标不小于x的坐标点位置
+     */
+    int lowerBound(float x) {
+        return CurveMath.lowerBound(mPointX, mPointCount, x);
+    }
+
+    /***
+     * 计算节点坐标和曲线路径，只计算与可见区间相交的节点，
+     * 节点数超过宽度像素的2倍时先抽样，只计算保留下来的节点
+     */
+    private void compute(SeriesSource data) {
+        final long start = System.nanoTime();
+        reset();
+        mLayoutChanged = false;
+        mProjectionNanos = 0;
+        mPathNanos = 0;
+        mPointsProcessed = 0;
+        //节点个数
+        final int size = data.size();
+        if (size == 0)
+            return;
+
+        final float dX;
+        if (mTimeAxis) {
+            //时间轴的x间距为每单位时间的像素数
+            mStart = 0;
+            mOriginTime = mFitAll ? data.getTime(0) : mStartTime;
+            final long end = mFitAll ? data.getTime(size - 1) : mEndTime;
+            dX = end > mOriginTime ? end - mOriginTime : (2);
+        } else if (mFitAll) {
+            mStart = 0;
+            dX = size > 1 ? size - 1 : (2);
+        } else {
+            mStart = mViewStart;
+            dX = mViewEnd - mViewStart;
+        }
+        final float dY = (mMaxY - mMinY) > 0 ? (mMaxY - mMinY) : (2);
+        mStepX = mWidth / dX;
+        mStepY = mHeight / dY;
+        mSize = size;
+
+        //可见区间两侧各多计算两个节点，保证边缘曲线的控制点与完整曲线相同
+        int from = 0;
+        int to = size;
+        if (!mFitAll && mTimeAxis) {
+            //二分查找可见时间区间两侧的节点
+            from = Math.max(0, CurveMath.upperBound(data, mStartTime) - 3);
+            to = Math.min(size, CurveMath.lowerBound(data, mEndTime) + 3);
+            if (from >= to)
+                return;
+        } else if (!mFitAll) {
+            from = Math.max(0, (int) Math.floor(mViewStart) - 2);
+            to = Math.min(size, (int) Math.ceil(mViewEnd) + 3);
+            if (from >= to)
+                return;
+        }
+        final int visible = to - from;
+        mPointsProcessed = visible;
+
+        //抽样，mPointIndex保存每个坐标点对应的节点位置
+        final int maxPoints = maxPointCount(mWidth);
+        //外部数据源可能有上千万个节点，总是抽样
+        final boolean external = !(data instanceof SeriesData);
+        final boolean downsample = (external || mDownsampleMode != SmoothLineChartView.DOWNSAMPLE_NONE) && visible > maxPoints;
+        ensurePointCapacity(downsample ? maxPoints + 8 : visible);
+        final int[] pointIndex = mPointIndex;
+        final int count;
+        if (!downsample) {
+            for (int i = 0; i < visible; i++) {
+                pointIndex[i] = from + i;
+            }
+            count = visible;
+        } else if (external) {
+            //按像素列抽样，每列通过数据源的min/max金字塔查找，不需要读取全部节点
+            count = Downsampler.minMax(data, from, to, maxPoints / 2, pointIndex);
+        } else if (!mFitAll) {
+            //缩放和平移时复用分级抽样结果
+            if (mDecimation == null) {
+                mDecimation = new DecimationCache();
+            }
+            count = mDecimation.select((SeriesData) data, mDownsampleMode, from, to, maxPoints, pointIndex);
+        } else if (mDownsampleMode == SmoothLineChartView.DOWNSAMPLE_MIN_MAX) {
+            count = Downsampler.minMax(data, from, to, maxPoints / 2, pointIndex);
+        } else {
+            count = Downsampler.lttb(data, from, to, maxPoints, pointIndex);
+        }
+        mDownsampled = count < size;
+        mVisibleDownsampled = downsample;
+        if (isCancelled()) {
+            return;
+        }
+
+        final float[] pointX = mPointX;
+        final float[] pointY = mPointY;
+        //计算点的坐标,保存到复用的坐标数组中
+        if (mTimeAxis) {
+            CurveMath.projectTime(data, pointIndex, count, mLeft, mOriginTime, mStepX, getBottom(), mMinY, mStepY, pointX, pointY);
+        } else {
+            CurveMath.project(data, pointIndex, count, mLeft, mStart, mStepX, getBottom(), mMinY, mStepY, pointX, pointY);
+        }
+        final long projected = System.nanoTime();
+        mProjectionNanos = projected - start;
+        if (isCancelled()) {
+            return;
+        }
+
+        //计算曲线路径，形状没变的路径块直接复用
+        buildTiles(count);
+        mPathNanos = System.nanoTime() - projected;
+    }
+
+    /***
+     * 后台计算的请求已过期，清空坐标点，计算结果不会被使用，下次更新时重新计算
+     */
+    private boolean isCancelled() {
+        if (mLatestRequest == null || mLatestRequest.get() == mGeneration) {
+            return false;
+        }
+        reset();
+        mLayoutChanged = true;
+        return true;
+    }
+
+    /***
+     * 追加节点后增量更新曲线，已有曲线只做x方向缩放，
+     * 只重新计算受新节点影响的最后一段控制点；需要抽样或只显示部分节点时重新计算全部曲线
+     */
+    private void append(SeriesSource data) {
+        final int oldSize = mSize;
+        final int size = data.size();
+        if (!mFitAll || oldSize < 2 || mDownsampled
+                || (mDownsampleMode != SmoothLineChartView.DOWNSAMPLE_NONE && size > maxPointCount(mWidth))) {
+            compute(data);
+            return;
+        }
+        final long start = System.nanoTime();
+        final float left = mLeft;
+        //节点间距由width/(oldSize-1)变为width/(size-1)，已有节点和曲线以左边界为原点缩放
+        final float scale;
+        if (mTimeAxis) {
+            //时间轴时按时间跨度缩放
+            final long oldSpan = data.getTime(oldSize - 1) - mOriginTime;
+            final long span = data.getTime(size - 1) - mOriginTime;
+            if (oldSpan <= 0 || span <= 0) {
+                compute(data);
+                return;
+            }
+            scale = (float) oldSpan / span;
+            mStepX = mWidth / span;
+        } else {
+            scale = (oldSize - 1f) / (size - 1);
+            mStepX = mWidth / (size - 1);
+        }
+
+        ensurePointCapacity(size);
+        final float[] pointX = mPointX;
+        final float[] pointY = mPointY;
+        for (int i = 0; i < oldSize; i++) {
+            pointX[i] = left + (pointX[i] - left) * scale;
+        }
+        for (int i = oldSize; i < size; i++) {
+            mPointIndex[i] = i;
+            pointX[i] = nodeX(data, i);
+            pointY[i] = nodeY(data.get(i));
+        }
+        final long projected = System.nanoTime();
+        mProjectionNanos = projected - start;
+        mPointsProcessed = size;
+        appendTiles(scale, size);
+        mSize = size;
+        mPathNanos = System.nanoTime() - projected;
+    }
+
+    /***
+     * 动画的一帧：布局与目标曲线相同，坐标点在起点和目标之间线性插值，
+     * 不重新投影和抽样，只用复用的坐标数组重建路径
+     * @param startX 与目标坐标点一一对应的起点x坐标
+     * @param startY 与目标坐标点一一对应的起点y坐标
+     * @param fraction 动画进度，0为起点，1为目标
+     */
+    void interpolate(CurveGeometry target, float[] startX, float[] startY, float fraction) {
+        final long start = System.nanoTime();
+        reset();
+        mLeft = target.mLeft;
+        mTop = target.mTop;
+        mWidth = target.mWidth;
+        mHeight = target.mHeight;
+        mMinY = target.mMinY;
+        mMaxY = target.mMaxY;
+        mStart = target.mStart;
+        mTimeAxis = target.mTimeAxis;
+        mOriginTime = target.mOriginTime;
+        mStepX = target.mStepX;
+        mStepY = target.mStepY;
+        mSize = target.mSize;
+        mVisibleDownsampled = target.mVisibleDownsampled;
+        final int count = target.mPointCount;
+        mPointsProcessed = count;
+        if (count == 0)
+            return;
+        ensurePointCapacity(count);
+        final float[] pointX = mPointX;
+        final float[] pointY = mPointY;
+        final float[] targetX = target.mPointX;
+        final float[] targetY = target.mPointY;
+        System.arraycopy(target.mPointIndex, 0, mPointIndex, 0, count);
+        for (int i = 0; i < count; i++) {
+            pointX[i] = startX[i] + (targetX[i] - startX[i]) * fraction;
+            pointY[i] = startY[i] + (targetY[i] - startY[i]) * fraction;
+        }
+        final long projected = System.nanoTime();
+        mProjectionNanos = projected - start;
+        buildTiles(count);
+        mPathNanos = System.nanoTime() - projected;
+    }
+
+    /***
+     * 按x网格重新划分路径块：起点落在同一格内的曲线段放在一块，
+     * 网格以第0个节点或时间0为原点，平移时不变。与上次同一格的路径块形状相同时只记录平移距离
+     * @param count 坐标点个数
+     */
+    private void buildTiles(int count) {
+        final float[] pointX = mPointX;
+        //上次的路径块按网格位置排列，与本次划分依次对照
+        final Tile[] prev = mTiles;
+        final int prevCount = mTileCount;
+        mTiles = mPrevTiles;
+        mPrevTiles = prev;
+        mTileCount = 0;
+        int p = 0;
+        int from = 0;
+        do {
+            final long cell = cellOf(pointX[from]);
+            int to = from + 1;
+            while (to < count - 1 && cellOf(pointX[to]) == cell) {
+                to++;
+            }
+            to = Math.min(to, count - 1);
+            final long key = shapeKey(from, to, count);
+            //NO_CELL小于所有网格位置，缩放过的块在这里回收
+            while (p < prevCount && prev[p].mCell < cell) {
+                recycleTile(prev[p++]);
+            }
+            Tile tile = null;
+            if (p < prevCount && prev[p].mCell == cell) {
+                tile = prev[p++];
+                if (tile.mKey == key && tile.mFrom - tile.mTo == from - to) {
+                    tile.mOffsetX = pointX[from] - tile.mBuiltX;
+                    tile.mFrom = from;
+                    tile.mTo = to;
+                    mTilesReused++;
+                    addTile(tile);
+                    from = to;
+                    continue;
+                }
+            }
+            if (tile == null) {
+                tile = obtainTile();
+            }
+            tile.mCell = cell;
+            tile.mKey = key;
+            buildTile(tile, from, to, count);
+            addTile(tile);
+            from = to;
+        } while (from < count - 1);
+        while (p < prevCount) {
+            recycleTile(prev[p++]);
+        }
+        mPointCount = count;
+    }
+
+    /***
+     * 追加节点：已有路径块以左边界为原点缩放，原来的最后一块缺少下一个节点，
+     * 和新节点一起重新生成，新节点按宽度分块。缩放后的块不在网格上，块数过多时重新划分
+     * @param scale 已有节点x方向的缩放比例
+     * @param count 坐标点个数
+     */
+    private void appendTiles(float scale, int count) {
+        if (mTileCount == 0 || mTileCount > maxTileCount(mWidth)) {
+            buildTiles(count);
+            return;
+        }
+        final float left = mLeft;
+        final Tile last = mTiles[--mTileCount];
+        int from = last.mFrom;
+        recycleTile(last);
+        mMatrix.setScale(scale, 1, left, 0);
+        for (int i = 0; i < mTileCount; i++) {
+            final Tile tile = mTiles[i];
+            tile.mPath.transform(mMatrix);
+            tile.mAreaPath.transform(mMatrix);
+            tile.mBuiltX = left + (tile.mBuiltX - left) * scale;
+            tile.mOffsetX *= scale;
+            tile.mCell = NO_CELL;
+        }
+        final float[] pointX = mPointX;
+        do {
+            int to = from + 1;
+            while (to < count - 1 && pointX[to] - pointX[from] < TILE_WIDTH) {
+                to++;
+            }
+            to = Math.min(to, count - 1);
+            final Tile tile = obtainTile();
+            tile.mCell = NO_CELL;
+            buildTile(tile, from, to, count);
+            addTile(tile);
+            from = to;
+        } while (from < count - 1);
+        mPointCount = count;
+    }
+
+    /***
+     * 生成第from到第to个坐标点之间的曲线和投影区域
+     */
+    private void buildTile(Tile tile, int from, int to, int count) {
+        final float[] pointX = mPointX;
+        final float[] pointY = mPointY;
+        final Path path = tile.mPath;
+        path.rewind();
+        path.moveTo(pointX[from], pointY[from]);
+        for (int i = from + 1; i <= to; i++) {
+            cubicSegment(path, i, count);
+        }
+        final Path area = tile.mAreaPath;
+        area.set(path);
+        area.lineTo(pointX[to], getBottom());
+        area.lineTo(pointX[from], getBottom());
+        area.close();
+        tile.mFrom = from;
+        tile.mTo = to;
+        tile.mBuiltX = pointX[from];
+        tile.mOffsetX = 0;
+        mTilesBuilt++;
+    }
+
+    /***
+     * 路径块的形状：影响控制点的前后各一个坐标点的y坐标、相对第一个点的x坐标和投影区域底边，
+     * x坐标精确到1/16像素
+     */
+    private long shapeKey(int from, int to, int count) {
+        final float[] pointX = mPointX;
+        final float[] pointY = mPointY;
+        final int first = Math.max(0, from - 1);
+        final int last = Math.min(count - 1, to + 1);
+        final float originX = pointX[from];
+        long key = (from - first) * 31L + (last - to);
+        key = key * 0x100000001B3L + Float.floatToIntBits(getBottom());
+        for (int i = first; i <= last; i++) {
+            key = key * 0x100000001B3L + Float.floatToIntBits(pointY[i]);
+            key = key * 0x100000001B3L + Math.round((pointX[i] - originX) * 16);
+        }
+        return key;
+    }
+
+    /***
+     * x坐标所在的网格位置，以第0个节点或时间0为原点
+     */
+    private long cellOf(float x) {
+        final double origin = mTimeAxis ? (double) mOriginTime * mStepX : (double) mStart * mStepX;
+        return (long) Math.floor((x - mLeft + origin) / TILE_WIDTH);
+    }
+
+    private void addTile(Tile tile) {
+        if (mTileCount == mTiles.length) {
+            mTiles = Arrays.copyOf(mTiles, mTileCount + 8);
+            mPrevTiles = Arrays.copyOf(mPrevTiles, mTiles.length);
+        }
+        mTiles[mTileCount++] = tile;
+    }
+
+    private Tile obtainTile() {
+        return mSpareCount > 0 ? mSpareTiles[--mSpareCount] : new Tile();
+    }
+
+    private void recycleTile(Tile tile) {
+        if (mSpareCount == mSpareTiles.length) {
+            mSpareTiles = Arrays.copyOf(mSpareTiles, mSpareCount + 8);
+        }
+        mSpareTiles[mSpareCount++] = tile;
+    }
+
+    /***
+     * 添加第i-1个坐标点到第i个坐标点的曲线
+     */
+    private void cubicSegment(Path path, int i, int count) {
+        final float[] control = mControl;
+        CurveMath.controlPoints(mPointX, mPointY, i, count, control);
+        // add line
+        path.cubicTo(control[0], control[1], control[2], control[3], mPointX[i], mPointY[i]);
+    }
+
+    /***
+     * 抽样后最多保留的坐标点个数，约为曲线宽度像素数的2倍
+     */
+    private static int maxPointCount(float width) {
+        return Math.max(MIN_DOWNSAMPLE_POINTS, 2 * (int) width);
+    }
+
+    /***
+     * 追加节点时最多保留的路径块个数，超过时重新按网格划分
+     */
+    private static int maxTileCount(float width) {
+        return 2 * (int) Math.ceil(width / TILE_WIDTH) + 4;
+    }
+
+    /***
+     * 坐标缓存扩容，容量足够时复用已有数组
+     */
+    private void ensurePointCapacity(int size) {
+        if (mPointX.length < size) {
+            final int capacity = Math.max(size, mPointX.length + (mPointX.length >> 1));
+            mPointX = Arrays.copyOf(mPointX, capacity);
+            mPointY = Arrays.copyOf(mPointY, capacity);
+            mPointIndex = Arrays.copyOf(mPointIndex, capacity);
+        }
+    }
+
+    /***
+     * 一块曲线和投影区域路径，以及判断能否复用的网格位置和形状
+     */
+    static final class Tile {
+        final Path mPath = new Path();
+        final Path mAreaPath = new Path();
+        long mCell;//网格位置
+        long mKey;//形状
+        int mFrom;//第一个坐标点位置
+        int mTo;//最后一个坐标点位置
+        float mBuiltX;//生成路径时第一个坐标点的x坐标
+        float mOffsetX;//绘制时的平移距离
+    }
+
+    /***
+     * 计算曲线需要的布局参数，由UI线程填写后传给{@link #setLayout(Layout)}，可以复用
+     */
+    static final class Layout {
+        float mLeft;
+        float mTop;
+        float mWidth;
+        float mHeight;
+        float mMinY;
+        float mMaxY;
+        int mDownsampleMode;
+        boolean mFitAll = true;
+        float mViewStart;
+        float mViewEnd;
+        boolean mTimeAxis;
+        long mStartTime;
+        long mEndTime;
+
+        void set(Layout other) {
+            mLeft = other.mLeft;
+            mTop = other.mTop;
+            mWidth = other.mWidth;
+            mHeight = other.mHeight;
+            mMinY = other.mMinY;
+            mMaxY = other.mMaxY;
+            mDownsampleMode = other.mDownsampleMode;
+            mFitAll = other.mFitAll;
+            mViewStart = other.mViewStart;
+            mViewEnd = other.mViewEnd;
+            mTimeAxis = other.mTimeAxis;
+            mStartTime = other.mStartTime;
+            mEndTime = other.mEndTime;
+        }
+    }
+}
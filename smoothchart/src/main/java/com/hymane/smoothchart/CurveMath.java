@@ -0,0 +1,147 @@
+package com.hymane.smoothchart;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-30
+ * Description: 曲线计算用到的纯数学部分：坐标投影、控制点和点击查找。
+ * 不依赖Android，可以直接在JVM上运行基准测试
+ */
+final class CurveMath {
+    static final float SMOOTHNESS = 0.35f; // the higher the smoother, but don't go over 0.5
+
+    private CurveMath() {
+        /* cannot be instantiated */
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /***
+     * 把抽样后的节点投影到像素坐标
+     * @param pointIndex 每个坐标点对应的节点位置
+     * @param start 左边界对应的节点位置
+     * @param stepX 每个节点的x间距
+     * @param bottom 最小y值对应的y坐标
+     * @param stepY y轴每单位对应的像素数
+     */
+    static void project(SeriesSource data, int[] pointIndex, int count, float left, float start, float stepX,
+                        float bottom, float minY, float stepY, float[] pointX, float[] pointY) {
+        for (int i = 0; i < count; i++) {
+            final int index = pointIndex[i];
+            pointX[i] = left + (index - start) * stepX;
+            pointY[i] = bottom - (data.get(index) - minY) * stepY;
+        }
+    }
+
+    /***
+     * 按时间戳投影，x坐标与节点时间成正比，节点间距可以不均匀
+     * @param origin 左边界对应的时间
+     * @param stepX 每单位时间的像素数
+     */
+    static void projectTime(SeriesSource data, int[] pointIndex, int count, float left, long origin, float stepX,
+                            float bottom, float minY, float stepY, float[] pointX, float[] pointY) {
+        for (int i = 0; i < count; i++) {
+            final int index = pointIndex[i];
+            pointX[i] = left + (data.getTime(index) - origin) * stepX;
+            pointY[i] = bottom - (data.get(index) - minY) * stepY;
+        }
+    }
+
+    /***
+     * 第i-1个坐标点到第i个坐标点的三次贝塞尔曲线控制点
+     * @param out 依次保存第一个和第二个控制点的x、y坐标，长度不小于4
+     */
+    static void controlPoints(float[] pointX, float[] pointY, int i, int count, float[] out) {
+        final int pre = i - 1; //上一个节点
+        //计算第一个控制点，第一段曲线起点斜率为0
+        float lX = 0, lY = 0;
+        if (pre > 0) {
+            lX = (pointX[i] - pointX[pre - 1]) / 2 * SMOOTHNESS;
+            lY = (pointY[i] - pointY[pre - 1]) / 2 * SMOOTHNESS;
+        }
+        out[0] = pointX[pre] + lX;
+        out[1] = pointY[pre] + lY;
+
+        //计算第二个控制点
+        final int next = i + 1 < count ? i + 1 : i;//下一个节点
+        lX = (pointX[next] - pointX[pre]) / 2 * SMOOTHNESS;        // (lX,lY) is the slope of the reference line
+        lY = (pointY[next] - pointY[pre]) / 2 * SMOOTHNESS;
+        out[2] = pointX[i] - lX;
+        out[3] = pointY[i] - lY;
+    }
+
+    /***
+     * 查找距离(x, y)最近的坐标点，坐标点的x坐标单调递增，
+     * 先二分查找x方向在半径内的区间，只比较区间内的坐标点，O(log n)
+     * @param radius x和y方向允许的最大距离
+     * @return 坐标点位置，没有找到返回-1
+     */
+    static int findNearest(float[] pointX, float[] pointY, int count, float x, float y, float radius) {
+        float minDistance = Float.MAX_VALUE;
+        int nearest = -1;
+        for (int i = lowerBound(pointX, count, x - radius); i < count && pointX[i] <= x + radius; i++) {
+            final float dx = pointX[i] - x;
+            final float dy = pointY[i] - y;
+            if (dy < -radius || dy > radius) {
+                continue;
+            }
+            final float distance = dx * dx + dy * dy;
+            if (distance < minDistance) {
+                minDistance = distance;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    /***
+     * 第一个时间戳不小于time的节点位置，时间戳单调不减，O(log n)
+     * @return 所有节点都早于time时返回size()
+     */
+    static int lowerBound(SeriesSource data, long time) {
+        int low = 0;
+        int high = data.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (data.getTime(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /***
+     * 第一个时间戳大于time的节点位置，O(log n)
+     */
+    static int upperBound(SeriesSource data, long time) {
+        int low = 0;
+        int high = data.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (data.getTime(mid) <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /***
+     * 第一个x坐标不小于x的坐标点位置
+     */
+    static int lowerBound(float[] pointX, int count, float x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (pointX[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,98 @@
+package com.hymane.smoothchart;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-26
+ * Description: 缩放时使用的分级抽样缓存。第level级把全部节点按2^level个一组抽样，
+ * 平移时只需二分查找可见区间内的抽样点，缩放时只有跨过2的幂才需要重新抽样，数据变化后全部失效
+ */
+class DecimationCache {
+    private static final int MAX_LEVELS = 31;
+
+    private final int[][] mLevels = new int[MAX_LEVELS][];//每一级抽样保留的节点位置
+    private final int[] mCounts = new int[MAX_LEVELS];//每一级抽样点个数，-1表示未计算
+    private long mModCount = -1;
+    private int mMode = -1;
+
+    DecimationCache() {
+        invalidate();
+    }
+
+    void invalidate() {
+        for (int i = 0; i < MAX_LEVELS; i++) {
+            mCounts[i] = -1;
+        }
+    }
+
+    /***
+     * 抽样可见区间[from, to)，区间两端各多保留两个抽样点，保证曲线能画到可见区域边缘
+     * @param maxPoints 可见区间最多保留的抽样点个数
+     * @param out 保存抽样点对应的节点位置，长度不小于maxPoints + 8
+     * @return 抽样点个数
+     */
+    int select(SeriesData data, int mode, int from, int to, int maxPoints, int[] out) {
+        if (data.modCount() != mModCount || mode != mMode) {
+            invalidate();
+            mModCount = data.modCount();
+            mMode = mode;
+        }
+        //每组节点最多保留的抽样点个数，LTTB为1个，最大最小值为2个
+        final int perBucket = mode == SmoothLineChartView.DOWNSAMPLE_MIN_MAX ? 2 : 1;
+        final int level = levelFor((long) (to - from) * perBucket, maxPoints);
+        final int[] indices = level(data, mode, level);
+        final int count = mCounts[level];
+
+        final int start = Math.max(0, lowerBound(indices, count, from) - 2);
+        final int end = Math.min(count, lowerBound(indices, count, to) + 2);
+        final int n = Math.min(end - start, out.length);
+        System.arraycopy(indices, start, out, 0, n);
+        return n;
+    }
+
+    /***
+     * 使抽样点个数不超过maxPoints的最小级别
+     */
+    private static int levelFor(long points, int maxPoints) {
+        int level = 0;
+        while (level < MAX_LEVELS - 1 && points > ((long) maxPoints << level)) {
+            level++;
+        }
+        return level;
+    }
+
+    private int[] level(SeriesData data, int mode, int level) {
+        if (mCounts[level] >= 0) {
+            return mLevels[level];
+        }
+        final int size = data.size();
+        final int groups = (int) ((size + (1L << level) - 1) >> level);
+        //最大最小值抽样每组最多2个点，另加首尾节点
+        final int capacity = Math.min(size, 2 * groups + 2);
+        int[] indices = mLevels[level];
+        if (indices == null || indices.length < capacity) {
+            indices = new int[capacity];
+            mLevels[level] = indices;
+        }
+        if (mode == SmoothLineChartView.DOWNSAMPLE_MIN_MAX) {
+            mCounts[level] = Downsampler.minMax(data, 0, size, groups, indices);
+        } else {
+            mCounts[level] = Downsampler.lttb(data, 0, size, Math.min(size, groups + 2), indices);
+        }
+        return indices;
+    }
+
+    private static int lowerBound(int[] indices, int count, int index) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (indices[mid] < index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,116 @@
+package com.hymane.smoothchart;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-20
+ * Description: 节点抽样，节点数远大于像素数时只保留能体现曲线形状的节点，
+ * 输出的是按顺序排列的节点位置，第一个和最后一个节点总会被保留
+ */
+final class Downsampler {
+
+    private Downsampler() {
+        /* cannot be instantiated */
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /***
+     * Largest-Triangle-Three-Buckets抽样，每个桶中保留与前一个保留点、下一个桶平均点组成三角形面积最大的节点
+     * @param threshold 最多保留的节点个数
+     * @param out 保存保留的节点位置，长度不小于threshold
+     * @return 保留的节点个数
+     */
+    static int lttb(SeriesSource data, int from, int to, int threshold, int[] out) {
+        final int count = to - from;
+        if (threshold >= count || threshold < 3) {
+            return identity(from, to, out);
+        }
+        int n = 0;
+        out[n++] = from;
+        //除首尾两个节点外，其余节点平均分到threshold-2个桶中
+        final double every = (double) (count - 2) / (threshold - 2);
+        int a = from;
+        for (int i = 0; i < threshold - 2; i++) {
+            //下一个桶的平均点
+            int avgStart = from + (int) ((i + 1) * every) + 1;
+            int avgEnd = Math.min(from + (int) ((i + 2) * every) + 1, to);
+            float avgX = 0, avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += j;
+                avgY += data.get(j);
+            }
+            final int avgCount = avgEnd - avgStart;
+            if (avgCount > 0) {
+                avgX /= avgCount;
+                avgY /= avgCount;
+            } else {
+                avgX = to - 1;
+                avgY = data.get(to - 1);
+            }
+
+            //当前桶中面积最大的节点
+            final int rangeStart = from + (int) (i * every) + 1;
+            final int rangeEnd = from + (int) ((i + 1) * every) + 1;
+            final float aY = data.get(a);
+            float maxArea = -1;
+            int maxIndex = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                final float area = Math.abs((a - avgX) * (data.get(j) - aY) - (a - j) * (avgY - aY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = j;
+                }
+            }
+            out[n++] = maxIndex;
+            a = maxIndex;
+        }
+        out[n++] = to - 1;
+        return n;
+    }
+
+    /***
+     * 按像素列抽样，每一列只保留最大和最小的节点，峰值不会丢失
+     * @param columns 列数，一般为曲线宽度的像素数
+     * @param out 保存保留的节点位置，长度不小于2 * columns + 2
+     * @return 保留的节点个数
+     */
+    static int minMax(SeriesSource data, int from, int to, int columns, int[] out) {
+        final int count = to - from;
+        if (columns <= 0 || 2 * columns + 2 >= count) {
+            return identity(from, to, out);
+        }
+        int n = 0;
+        out[n++] = from;
+        final double every = (double) count / columns;
+        for (int c = 0; c < columns; c++) {
+            final int start = from + (int) (c * every);
+            final int end = c == columns - 1 ? to : from + (int) ((c + 1) * every);
+            if (start >= end) {
+                continue;
+            }
+            //外部数据源通过min/max金字塔查找，只读取需要的页
+            final int minIndex = data.minIndex(start, end);
+            final int maxIndex = data.maxIndex(start, end);
+            //按节点顺序保存，避免曲线在一列内来回折返
+            final int first = Math.min(minIndex, maxIndex);
+            final int second = Math.max(minIndex, maxIndex);
+            if (first > out[n - 1]) {
+                out[n++] = first;
+            }
+            if (second > out[n - 1]) {
+                out[n++] = second;
+            }
+        }
+        if (out[n - 1] != to - 1) {
+            out[n++] = to - 1;
+        }
+        return n;
+    }
+
+    private static int identity(int from, int to, int[] out) {
+        for (int i = from; i < to; i++) {
+            out[i - from] = i;
+        }
+        return to - from;
+    }
+}
@@ -0,0 +1,140 @@
+package com.hymane.smoothchart;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-05-01
+ * Description: 一帧绘制的耗时和计数，时间单位为纳秒。
+ * 坐标和路径的计算只在数据或布局变化时进行，复用上次结果的帧中对应耗时为0
+ */
+public final class FrameMetrics {
+    long mFrameNanos;//draw()总耗时
+    long mProjectionNanos;//抽样和坐标投影
+    long mPathNanos;//生成曲线和投影区域路径
+    long mCurveNanos;//绘制曲线和投影区域
+    long mNodeNanos;//绘制节点
+    long mTextNanos;//绘制x、y刻度
+    long mOverlayNanos;//绘制选中节点高亮、标签和数值
+    int mPointsProcessed;//参与计算的节点个数，只包括可见区间
+    int mPointsDrawn;//抽样后绘制的坐标点个数
+    int mNodesDrawn;//绘制的节点圆个数，节点过密时为0
+    int mLayerCacheHits;//直接复用的缓存层个数
+    int mLayerCacheMisses;//重新绘制的缓存层个数
+    int mTilesBuilt;//重新生成的曲线路径块个数
+    int mTilesReused;//形状没变、直接复用的曲线路径块个数
+    int mTextCacheHits;//文字宽度缓存命中次数
+    int mTextCacheMisses;
+    int mAllocations;//绘制期间UI线程分配的对象个数，只在开启分配统计时计数
+
+    public long getFrameNanos() {
+        return mFrameNanos;
+    }
+
+    public long getProjectionNanos() {
+        return mProjectionNanos;
+    }
+
+    public long getPathNanos() {
+        return mPathNanos;
+    }
+
+    public long getCurveNanos() {
+        return mCurveNanos;
+    }
+
+    public long getNodeNanos() {
+        return mNodeNanos;
+    }
+
+    public long getTextNanos() {
+        return mTextNanos;
+    }
+
+    public long getOverlayNanos() {
+        return mOverlayNanos;
+    }
+
+    public int getPointsProcessed() {
+        return mPointsProcessed;
+    }
+
+    public int getPointsDrawn() {
+        return mPointsDrawn;
+    }
+
+    public int getNodesDrawn() {
+        return mNodesDrawn;
+    }
+
+    public int getLayerCacheHits() {
+        return mLayerCacheHits;
+    }
+
+    public int getLayerCacheMisses() {
+        return mLayerCacheMisses;
+    }
+
+    public int getTilesBuilt() {
+        return mTilesBuilt;
+    }
+
+    public int getTilesReused() {
+        return mTilesReused;
+    }
+
+    public int getTextCacheHits() {
+        return mTextCacheHits;
+    }
+
+    public int getTextCacheMisses() {
+        return mTextCacheMisses;
+    }
+
+    /***
+     * 绘制期间UI线程分配的对象个数，需要先调用{@link SmoothLineChartView#setAllocationCountingEnabled(boolean)}，
+     * 没有开启时总是0
+     */
+    public int getAllocations() {
+        return mAllocations;
+    }
+
+    public void copyTo(FrameMetrics target) {
+        target.mFrameNanos = mFrameNanos;
+        target.mProjectionNanos = mProjectionNanos;
+        target.mPathNanos = mPathNanos;
+        target.mCurveNanos = mCurveNanos;
+        target.mNodeNanos = mNodeNanos;
+        target.mTextNanos = mTextNanos;
+        target.mOverlayNanos = mOverlayNanos;
+        target.mPointsProcessed = mPointsProcessed;
+        target.mPointsDrawn = mPointsDrawn;
+        target.mNodesDrawn = mNodesDrawn;
+        target.mLayerCacheHits = mLayerCacheHits;
+        target.mLayerCacheMisses = mLayerCacheMisses;
+        target.mTilesBuilt = mTilesBuilt;
+        target.mTilesReused = mTilesReused;
+        target.mTextCacheHits = mTextCacheHits;
+        target.mTextCacheMisses = mTextCacheMisses;
+        target.mAllocations = mAllocations;
+    }
+
+    void reset() {
+        mFrameNanos = 0;
+        mProjectionNanos = 0;
+        mPathNanos = 0;
+        mCurveNanos = 0;
+        mNodeNanos = 0;
+        mTextNanos = 0;
+        mOverlayNanos = 0;
+        mPointsProcessed = 0;
+        mPointsDrawn = 0;
+        mNodesDrawn = 0;
+        mLayerCacheHits = 0;
+        mLayerCacheMisses = 0;
+        mTilesBuilt = 0;
+        mTilesReused = 0;
+        mTextCacheHits = 0;
+        mTextCacheMisses = 0;
+        mAllocations = 0;
+    }
+}
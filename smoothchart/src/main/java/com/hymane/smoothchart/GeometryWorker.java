@@ -0,0 +1,155 @@
+package com.hymane.smoothchart;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-22
+ * Description: 在后台线程计算曲线坐标、抽样和路径。
+ * 使用三个CurveGeometry轮换：UI线程绘制front，后台线程写入back，计算完成后与ready交换，
+ * UI线程绘制前再用front换取最新的ready，两个线程不会同时访问同一个CurveGeometry。
+ * 新的请求或取消会让正在进行的计算在下一个阶段提前结束
+ */
+class GeometryWorker {
+    private static final long NO_REQUEST = Long.MIN_VALUE;
+    //所有图表共用一个后台线程，计算请求按顺序执行
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "SmoothChart-geometry");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Object mLock = new Object();
+    private final Executor mExecutor;
+    private final Runnable mOnReady;//后台线程计算完成后调用，需要线程安全
+    private final Runnable mTask = new Runnable() {
+        @Override
+        public void run() {
+            computePending();
+        }
+    };
+
+    //以下字段由mLock保护
+    private CurveGeometry mReady = new CurveGeometry();
+    private SeriesData mPending = new SeriesData();//最新请求的数据快照
+    private SeriesSource mPendingSource;//只读的外部数据源，不需要快照
+    private long mPendingGeneration;
+    private long mTakenGeneration;//已被后台线程取走的请求
+    private boolean mScheduled;
+    private boolean mPendingChanged;//快照的数值变化过，后台线程需要重建线段树
+    private final CurveGeometry.Layout mLayout = new CurveGeometry.Layout();
+    //最新请求的版本，取消后为NO_REQUEST，后台线程计算时不加锁读取
+    private final AtomicLong mLatestRequest = new AtomicLong(NO_REQUEST);
+
+    //以下字段只在后台线程访问
+    private CurveGeometry mBack = new CurveGeometry();
+    private SeriesData mWorking = new SeriesData();
+
+    GeometryWorker(Runnable onReady) {
+        this(EXECUTOR, onReady);
+    }
+
+    GeometryWorker(Executor executor, Runnable onReady) {
+        mExecutor = executor;
+        mOnReady = onReady;
+    }
+
+    /***
+     * 请求在后台计算，UI线程调用。内存中的数据只复制数值和时间戳作为快照，数据没变时不复制，
+     * 调用后可以继续修改数据；只读的外部数据源直接在后台线程读取；尚未开始计算的旧请求会被新请求覆盖
+     */
+    void request(long generation, SeriesSource data, CurveGeometry.Layout layout) {
+        boolean schedule = false;
+        synchronized (mLock) {
+            if (data instanceof SeriesData) {
+                mPendingChanged |= ((SeriesData) data).snapshotTo(mPending);
+                mPendingSource = null;
+            } else {
+                mPendingSource = data;
+            }
+            mPendingGeneration = generation;
+            mLatestRequest.set(generation);
+            mLayout.set(layout);
+            if (!mScheduled) {
+                mScheduled = true;
+                schedule = true;
+            }
+        }
+        if (schedule) {
+            mExecutor.execute(mTask);
+        }
+    }
+
+    /***
+     * 放弃所有未完成的请求，正在进行的计算提前结束且不会交给UI线程，UI线程调用
+     */
+    void cancel() {
+        synchronized (mLock) {
+            mTakenGeneration = mPendingGeneration;
+            mLatestRequest.set(NO_REQUEST);
+        }
+    }
+
+    /***
+     * 如果有比front更新的计算结果，交换并返回新的front，否则返回原来的front。UI线程调用
+     */
+    CurveGeometry swap(CurveGeometry front) {
+        synchronized (mLock) {
+            if (mReady.mGeneration <= front.mGeneration) {
+                return front;
+            }
+            final CurveGeometry ready = mReady;
+            mReady = front;
+            return ready;
+        }
+    }
+
+    private void computePending() {
+        while (true) {
+            final long generation;
+            final SeriesSource source;
+            final boolean changed;
+            synchronized (mLock) {
+                if (mPendingGeneration == mTakenGeneration) {
+                    mScheduled = false;
+                    return;
+                }
+                generation = mPendingGeneration;
+                mTakenGeneration = generation;
+                final SeriesData pending = mPending;
+                mPending = mWorking;
+                mWorking = pending;
+                //换下来的快照与自己的线段树一致
+                changed = mPendingChanged;
+                mPendingChanged = false;
+                source = mPendingSource != null ? mPendingSource : mWorking;
+                mBack.setLayout(mLayout);
+            }
+            if (changed) {
+                mWorking.buildRange();
+            }
+            mBack.mGeneration = generation;
+            mBack.mLatestRequest = mLatestRequest;
+            mBack.update(source, true);
+            mBack.mLatestRequest = null;
+            synchronized (mLock) {
+                if (generation != mLatestRequest.get()) {
+                    //计算期间有新的请求或已取消，结果已过期，直接丢弃
+                    continue;
+                }
+                final CurveGeometry ready = mReady;
+                mReady = mBack;
+                mBack = ready;
+            }
+            mOnReady.run();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.hymane.smoothchart;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-05-02
+ * Description: 单生产者单消费者的无锁节点队列，生产者可以是任意一个线程，消费者为UI线程。
+ * 数值和时间戳保存在原始类型环形数组中，入队不分配对象。
+ * 队列满时按策略丢弃最旧或最新的节点，不会阻塞生产者
+ */
+class IngestQueue {
+    private final float[] mValues;
+    private final long[] mTimes;
+    private final int mMask;
+    private final int mPolicy;
+    //mHead只由消费者取出和生产者丢弃最旧节点时修改，mTail只由生产者修改，都单调递增
+    private final AtomicLong mHead = new AtomicLong();
+    private final AtomicLong mTail = new AtomicLong();
+    private volatile long mDropped;//只由生产者修改
+
+    /***
+     * @param capacity 容量，向上取整为2的幂
+     * @param policy {@link SmoothLineChartView#BACKPRESSURE_DROP_OLDEST}或{@link SmoothLineChartView#BACKPRESSURE_DROP_NEWEST}
+     */
+    IngestQueue(int capacity, int policy) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be in (0, 2^30]");
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mValues = new float[size];
+        mTimes = new long[size];
+        mMask = size - 1;
+        mPolicy = policy;
+    }
+
+    int capacity() {
+        return mValues.length;
+    }
+
+    /***
+     * 生产者入队
+     * @return 节点是否入队，按丢弃最新节点策略且队列已满时返回false
+     */
+    boolean offer(float value, long timestamp) {
+        final long tail = mTail.get();
+        final long head = mHead.get();
+        if (tail - head >= mValues.length) {
+            if (mPolicy == SmoothLineChartView.BACKPRESSURE_DROP_NEWEST) {
+                mDropped++;
+                return false;
+            }
+            //丢弃最旧的节点。CAS失败说明消费者刚取走了节点，已经有空位
+            if (mHead.compareAndSet(head, head + 1)) {
+                mDropped++;
+            }
+        }
+        final int slot = (int) tail & mMask;
+        mValues[slot] = value;
+        mTimes[slot] = timestamp;
+        //发布节点，消费者读到新的mTail时一定能读到上面写入的数据
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    /***
+     * 消费者取出全部节点
+     * @param values 长度不小于{@link #capacity()}
+     * @param times 长度不小于{@link #capacity()}
+     * @return 取出的节点个数
+     */
+    int drain(float[] values, long[] times) {
+        while (true) {
+            final long head = mHead.get();
+            final long tail = mTail.get();
+            if (head == tail) {
+                return 0;
+            }
+            if (tail - head > mValues.length) {
+                //读取mTail前生产者已经丢弃了最旧的节点，mHead已过期
+                continue;
+            }
+            final int count = (int) (tail - head);
+            for (int i = 0; i < count; i++) {
+                final int slot = (int) (head + i) & mMask;
+                values[i] = mValues[slot];
+                times[i] = mTimes[slot];
+            }
+            //复制期间生产者丢弃了最旧的节点时CAS失败，复制到的数据可能已被覆盖，重新复制
+            if (mHead.compareAndSet(head, tail)) {
+                return count;
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return mHead.get() == mTail.get();
+    }
+
+    /***
+     * 队列满时丢弃的节点总数
+     */
+    long getDroppedCount() {
+        return mDropped;
+    }
+}
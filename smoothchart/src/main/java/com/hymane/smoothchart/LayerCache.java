@@ -0,0 +1,86 @@
+package com.hymane.smoothchart;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-28
+ * Description: 离屏位图缓存的绘制层，内容不变时直接绘制位图，
+ * 只有被标记为dirty后才重新绘制，尺寸不变时复用同一个位图。
+ * 只标记了局部区域时只清空并重新绘制该区域，其余像素保留
+ */
+class LayerCache {
+    private final Canvas mCanvas = new Canvas();
+    private Bitmap mBitmap;
+    private boolean mDirty = true;//整层重新绘制
+    private final Rect mDirtyRect = new Rect();//局部重新绘制的区域
+    private int mSaveCount = -1;//局部绘制时裁剪前的画布状态
+
+    void invalidate() {
+        mDirty = true;
+    }
+
+    /***
+     * 标记局部区域需要重新绘制，多次标记时取并集
+     */
+    void invalidate(Rect dirty) {
+        if (!mDirty) {
+            mDirtyRect.union(dirty);
+        }
+    }
+
+    boolean isDirty() {
+        return mDirty || !mDirtyRect.isEmpty();
+    }
+
+    /***
+     * 开始重新绘制，返回已清空的位图画布，只有局部区域需要重新绘制时画布裁剪到该区域，
+     * 绘制完成后调用{@link #end()}
+     */
+    Canvas begin(int width, int height) {
+        if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height) {
+            release();
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mCanvas.setBitmap(mBitmap);
+        } else if (mDirty) {
+            mBitmap.eraseColor(Color.TRANSPARENT);
+        } else {
+            mSaveCount = mCanvas.save();
+            mCanvas.clipRect(mDirtyRect);
+            mCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        }
+        mDirty = false;
+        mDirtyRect.setEmpty();
+        return mCanvas;
+    }
+
+    void end() {
+        if (mSaveCount >= 0) {
+            mCanvas.restoreToCount(mSaveCount);
+            mSaveCount = -1;
+        }
+    }
+
+    void draw(Canvas canvas) {
+        if (mBitmap != null) {
+            canvas.drawBitmap(mBitmap, 0, 0, null);
+        }
+    }
+
+    /***
+     * 释放位图，下次绘制时重新分配
+     */
+    void release() {
+        if (mBitmap != null) {
+            mCanvas.setBitmap(null);
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+        mDirty = true;
+    }
+}
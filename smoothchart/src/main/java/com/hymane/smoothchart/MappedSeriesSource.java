@@ -0,0 +1,334 @@
+package com.hymane.smoothchart;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-05-05
+ * Description: 通过FileChannel.map读取二进制文件的只读数据源，节点不加载到Java堆中，
+ * 可以浏览上千万个节点的历史数据。文件中预先保存了多级min/max金字塔，
+ * 任意区间的最大最小值只需要读取区间两端和几层金字塔，绘制时只访问可见区间需要的页。
+ * <p>
+ * 文件格式（小端）：32字节文件头（魔数、版本、标志、节点个数、金字塔层数），
+ * float数值，按8字节对齐的long时间戳（可选），金字塔各层依次保存，
+ * 每项为区间的min、max和它们的节点位置。第0层每项对应{@link #BLOCK}个节点，
+ * 之后每层每项对应上一层的{@link #FANOUT}项。文件大小不能超过2GB
+ */
+public final class MappedSeriesSource implements SeriesSource {
+    private static final int MAGIC = 0x534D4353;//"SMCS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int FLAG_TIMES = 1;
+    private static final int ENTRY_SIZE = 16;//min、max、minIndex、maxIndex
+    static final int BLOCK = 64;
+    static final int FANOUT = 8;
+
+    private final ByteBuffer mBuffer;//整个文件的映射，只做绝对位置读取，可以并发读
+    private final int mSize;
+    private final boolean mHasTimes;
+    private final int mTimesOffset;
+    private final int[] mLevelOffsets;//金字塔每层的起始位置
+    private final float mMin;
+    private final float mMax;
+
+    private MappedSeriesSource(ByteBuffer buffer, int size, boolean hasTimes, int[] levelOffsets) {
+        mBuffer = buffer;
+        mSize = size;
+        mHasTimes = hasTimes;
+        mTimesOffset = timesOffset(size);
+        mLevelOffsets = levelOffsets;
+        if (size == 0) {
+            mMin = 0;
+            mMax = 0;
+        } else {
+            //最高层只有一项，就是全部节点的最大最小值
+            final int top = levelOffsets[levelOffsets.length - 1];
+            mMin = buffer.getFloat(top);
+            mMax = buffer.getFloat(top + 4);
+        }
+    }
+
+    /***
+     * 映射{@link #write(File, float[], long[], int, int)}生成的文件
+     */
+    public static MappedSeriesSource open(File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("invalid series file length: " + length);
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("not a series file: " + file);
+            }
+            final boolean hasTimes = (buffer.getInt(8) & FLAG_TIMES) != 0;
+            final int size = buffer.getInt(12);
+            final int[] levelOffsets = levelOffsets(size, hasTimes);
+            if (size < 0 || levelOffsets.length != buffer.getInt(16) || length != fileLength(size, hasTimes)) {
+                throw new IOException("corrupted series file: " + file);
+            }
+            //映射在通道关闭后仍然有效
+            return new MappedSeriesSource(buffer, size, hasTimes, levelOffsets);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /***
+     * 生成数据文件和min/max金字塔，一般在服务端或后台线程预先生成
+     * @param times 节点时间戳，单调不减，可为空
+     */
+    public static void write(File file, float[] values, long[] times, int offset, int count) throws IOException {
+        if (offset < 0 || count < 0 || offset + count > values.length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", count: " + count + ", length: " + values.length);
+        }
+        if (times != null && times.length < offset + count) {
+            throw new IllegalArgumentException("times's size should be same as values's");
+        }
+        final boolean hasTimes = times != null;
+        final long length = fileLength(count, hasTimes);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("too many values to map: " + count);
+        }
+        final int[] levelOffsets = levelOffsets(count, hasTimes);
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+            final MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, hasTimes ? FLAG_TIMES : 0);
+            buffer.putInt(12, count);
+            buffer.putInt(16, levelOffsets.length);
+            for (int i = 0; i < count; i++) {
+                buffer.putFloat(HEADER_SIZE + 4 * i, values[offset + i]);
+            }
+            if (hasTimes) {
+                final int timesOffset = timesOffset(count);
+                for (int i = 0; i < count; i++) {
+                    if (i > 0 && times[offset + i] < times[offset + i - 1]) {
+                        throw new IllegalArgumentException("timestamps must be in ascending order");
+                    }
+                    buffer.putLong(timesOffset + 8 * i, times[offset + i]);
+                }
+            }
+            writePyramid(buffer, values, offset, count, levelOffsets);
+            buffer.force();
+        } finally {
+            raf.close();
+        }
+    }
+
+    /***
+     * 第0层由节点生成，之后每层由上一层生成
+     */
+    private static void writePyramid(ByteBuffer buffer, float[] values, int offset, int count, int[] levelOffsets) {
+        if (levelOffsets.length == 0) {
+            return;
+        }
+        int entries = (count + BLOCK - 1) / BLOCK;
+        for (int e = 0; e < entries; e++) {
+            final int from = e * BLOCK;
+            final int to = Math.min(count, from + BLOCK);
+            int minIndex = from, maxIndex = from;
+            for (int i = from + 1; i < to; i++) {
+                final float value = values[offset + i];
+                if (value < values[offset + minIndex]) {
+                    minIndex = i;
+                }
+                if (value > values[offset + maxIndex]) {
+                    maxIndex = i;
+                }
+            }
+            putEntry(buffer, levelOffsets[0] + e * ENTRY_SIZE, values[offset + minIndex], values[offset + maxIndex], minIndex, maxIndex);
+        }
+        for (int level = 1; level < levelOffsets.length; level++) {
+            final int below = levelOffsets[level - 1];
+            final int belowEntries = entries;
+            entries = (belowEntries + FANOUT - 1) / FANOUT;
+            for (int e = 0; e < entries; e++) {
+                final int from = e * FANOUT;
+                final int to = Math.min(belowEntries, from + FANOUT);
+                int minEntry = below + from * ENTRY_SIZE, maxEntry = minEntry;
+                for (int i = from + 1; i < to; i++) {
+                    final int entry = below + i * ENTRY_SIZE;
+                    if (buffer.getFloat(entry) < buffer.getFloat(minEntry)) {
+                        minEntry = entry;
+                    }
+                    if (buffer.getFloat(entry + 4) > buffer.getFloat(maxEntry + 4)) {
+                        maxEntry = entry;
+                    }
+                }
+                putEntry(buffer, levelOffsets[level] + e * ENTRY_SIZE, buffer.getFloat(minEntry), buffer.getFloat(maxEntry + 4),
+                        buffer.getInt(minEntry + 8), buffer.getInt(maxEntry + 12));
+            }
+        }
+    }
+
+    private static void putEntry(ByteBuffer buffer, int position, float min, float max, int minIndex, int maxIndex) {
+        buffer.putFloat(position, min);
+        buffer.putFloat(position + 4, max);
+        buffer.putInt(position + 8, minIndex);
+        buffer.putInt(position + 12, maxIndex);
+    }
+
+    /***
+     * 时间戳按8字节对齐
+     */
+    private static int timesOffset(int size) {
+        return (HEADER_SIZE + 4 * size + 7) & ~7;
+    }
+
+    /***
+     * 金字塔每层的起始位置，没有节点时没有金字塔
+     */
+    private static int[] levelOffsets(int size, boolean hasTimes) {
+        int levels = 0;
+        for (int entries = (size + BLOCK - 1) / BLOCK; entries > 0; entries = entries == 1 ? 0 : (entries + FANOUT - 1) / FANOUT) {
+            levels++;
+        }
+        final int[] offsets = new int[levels];
+        long position = hasTimes ? timesOffset(size) + 8L * size : HEADER_SIZE + 4L * size;
+        int entries = (size + BLOCK - 1) / BLOCK;
+        for (int level = 0; level < levels; level++) {
+            offsets[level] = (int) Math.min(position, Integer.MAX_VALUE);
+            position += (long) entries * ENTRY_SIZE;
+            entries = (entries + FANOUT - 1) / FANOUT;
+        }
+        return offsets;
+    }
+
+    private static long fileLength(int size, boolean hasTimes) {
+        long length = hasTimes ? timesOffset(size) + 8L * size : HEADER_SIZE + 4L * size;
+        int entries = (size + BLOCK - 1) / BLOCK;
+        while (entries > 0) {
+            length += (long) entries * ENTRY_SIZE;
+            entries = entries == 1 ? 0 : (entries + FANOUT - 1) / FANOUT;
+        }
+        return length;
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public float get(int index) {
+        checkIndex(index);
+        return mBuffer.getFloat(HEADER_SIZE + 4 * index);
+    }
+
+    @Override
+    public long getTime(int index) {
+        checkIndex(index);
+        return mHasTimes ? mBuffer.getLong(mTimesOffset + 8 * index) : 0;
+    }
+
+    @Override
+    public boolean hasTimes() {
+        return mHasTimes;
+    }
+
+    @Override
+    public float min() {
+        return mMin;
+    }
+
+    @Override
+    public float max() {
+        return mMax;
+    }
+
+    @Override
+    public int minIndex(int from, int to) {
+        return find(from, to, true);
+    }
+
+    @Override
+    public int maxIndex(int from, int to) {
+        return find(from, to, false);
+    }
+
+    /***
+     * 区间两端不足一块的节点直接读取，中间部分从第0层开始，
+     * 每层只读取两端不能合并到上一层的项，O(BLOCK + FANOUT * 层数)
+     * @param min 查找最小值还是最大值，值相同时返回靠前的节点
+     */
+    private int find(int from, int to, boolean min) {
+        if (from < 0 || to > mSize || from >= to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + mSize);
+        }
+        int best = from;
+        float bestValue = get(from);
+        int low = from + 1;
+        int high = to;
+        while (low < high && low % BLOCK != 0) {
+            final float value = get(low);
+            if (better(min, value, low, bestValue, best)) {
+                best = low;
+                bestValue = value;
+            }
+            low++;
+        }
+        while (high > low && high % BLOCK != 0) {
+            high--;
+            final float value = get(high);
+            if (better(min, value, high, bestValue, best)) {
+                best = high;
+                bestValue = value;
+            }
+        }
+        //[a, b)为当前层完整覆盖的项
+        int a = low / BLOCK;
+        int b = high / BLOCK;
+        for (int level = 0; a < b; level++) {
+            final int base = mLevelOffsets[level];
+            while (a < b && (a % FANOUT != 0 || a + FANOUT > b)) {
+                final int entry = base + (a++) * ENTRY_SIZE;
+                final float value = mBuffer.getFloat(min ? entry : entry + 4);
+                final int index = mBuffer.getInt(min ? entry + 8 : entry + 12);
+                if (better(min, value, index, bestValue, best)) {
+                    best = index;
+                    bestValue = value;
+                }
+            }
+            while (b > a && b % FANOUT != 0) {
+                final int entry = base + (--b) * ENTRY_SIZE;
+                final float value = mBuffer.getFloat(min ? entry : entry + 4);
+                final int index = mBuffer.getInt(min ? entry + 8 : entry + 12);
+                if (better(min, value, index, bestValue, best)) {
+                    best = index;
+                    bestValue = value;
+                }
+            }
+            a /= FANOUT;
+            b /= FANOUT;
+        }
+        return best;
+    }
+
+    private static boolean better(boolean min, float value, int index, float bestValue, int best) {
+        if (value == bestValue) {
+            return index < best;
+        }
+        return min ? value < bestValue : value > bestValue;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + mSize);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.hymane.smoothchart;
+
+import java.util.Arrays;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-18
+ * Description: 维护节点最大最小值的线段树，追加、修改和删除尾部节点都是O(log n)，
+ * 不需要每次删除节点都重新遍历全部数据。也可以O(log n)查询任意区间最大最小值的位置
+ */
+class MinMaxTree {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    //叶子节点从mCapacity开始，节点i的父节点为i/2
+    private float[] mMin;
+    private float[] mMax;
+    private int mCapacity;
+    private int mSize;
+
+    MinMaxTree() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /***
+     * 全部数据的最小值，没有数据时返回Float.POSITIVE_INFINITY
+     */
+    float min() {
+        return mMin[1];
+    }
+
+    /***
+     * 全部数据的最大值，没有数据时返回Float.NEGATIVE_INFINITY
+     */
+    float max() {
+        return mMax[1];
+    }
+
+    /***
+     * [from, to)区间内最小值所在的位置，值相同时返回靠前的位置，O(log n)
+     */
+    int minIndex(int from, int to) {
+        return find(from, to, true);
+    }
+
+    /***
+     * [from, to)区间内最大值所在的位置，值相同时返回靠前的位置，O(log n)
+     */
+    int maxIndex(int from, int to) {
+        return find(from, to, false);
+    }
+
+    /***
+     * 自底向上找出覆盖区间的O(log n)个节点中最值所在的最靠左的节点，再向下找到叶子
+     */
+    private int find(int from, int to, boolean min) {
+        final float[] tree = min ? mMin : mMax;
+        //左侧节点从左到右访问，右侧节点从右到左访问，值相同时保留靠左的节点
+        int left = -1;
+        int right = -1;
+        for (int l = from + mCapacity, r = to + mCapacity; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) != 0) {
+                if (left == -1 || better(min, tree[l], tree[left])) {
+                    left = l;
+                }
+                l++;
+            }
+            if ((r & 1) != 0) {
+                --r;
+                if (right == -1 || !better(min, tree[right], tree[r])) {
+                    right = r;
+                }
+            }
+        }
+        int node = left == -1 || right != -1 && better(min, tree[right], tree[left]) ? right : left;
+        if (node == -1) {
+            return -1;
+        }
+        final float value = tree[node];
+        while (node < mCapacity) {
+            node = tree[2 * node] == value ? 2 * node : 2 * node + 1;
+        }
+        return node - mCapacity;
+    }
+
+    private static boolean better(boolean min, float a, float b) {
+        return min ? a < b : a > b;
+    }
+
+    /***
+     * 使用新数据重建，O(n)
+     */
+    void build(float[] values, int offset, int count) {
+        if (count > mCapacity) {
+            allocate(capacityFor(count));
+        }
+        System.arraycopy(values, offset, mMin, mCapacity, count);
+        System.arraycopy(values, offset, mMax, mCapacity, count);
+        Arrays.fill(mMin, mCapacity + count, mCapacity + Math.max(count, mSize), Float.POSITIVE_INFINITY);
+        Arrays.fill(mMax, mCapacity + count, mCapacity + Math.max(count, mSize), Float.NEGATIVE_INFINITY);
+        mSize = count;
+        rebuildParents(0, mCapacity);
+    }
+
+    void append(float value) {
+        if (mSize == mCapacity) {
+            grow();
+        }
+        set(mSize++, value);
+    }
+
+    /***
+     * 批量追加，只重新计算新叶子的祖先节点，O(count + log n)
+     */
+    void appendAll(float[] values, int offset, int count) {
+        if (count == 0) {
+            return;
+        }
+        while (mSize + count > mCapacity) {
+            grow();
+        }
+        System.arraycopy(values, offset, mMin, mCapacity + mSize, count);
+        System.arraycopy(values, offset, mMax, mCapacity + mSize, count);
+        final int from = mSize;
+        mSize += count;
+        rebuildParents(from, mSize);
+    }
+
+    /***
+     * 修改指定位置的值，O(log n)
+     */
+    void set(int index, float value) {
+        final int i = index + mCapacity;
+        mMin[i] = value;
+        mMax[i] = value;
+        updateParents(i);
+    }
+
+    /***
+     * 删除指定位置的值，删除尾部节点为O(log n)，
+     * 删除中间节点时后续叶子需要整体前移，代价与前移的节点数成正比
+     */
+    void remove(int index) {
+        final int last = mSize - 1;
+        mSize = last;
+        if (index == last) {
+            clearLeaf(last);
+            return;
+        }
+        System.arraycopy(mMin, mCapacity + index + 1, mMin, mCapacity + index, last - index);
+        System.arraycopy(mMax, mCapacity + index + 1, mMax, mCapacity + index, last - index);
+        mMin[mCapacity + last] = Float.POSITIVE_INFINITY;
+        mMax[mCapacity + last] = Float.NEGATIVE_INFINITY;
+        rebuildParents(index, last + 1);
+    }
+
+    /***
+     * 删除[from, to)，后续叶子整体前移，只重新计算from之后叶子的祖先节点
+     */
+    void removeRange(int from, int to) {
+        final int removed = to - from;
+        if (removed == 0) {
+            return;
+        }
+        final int size = mSize;
+        System.arraycopy(mMin, mCapacity + to, mMin, mCapacity + from, size - to);
+        System.arraycopy(mMax, mCapacity + to, mMax, mCapacity + from, size - to);
+        Arrays.fill(mMin, mCapacity + size - removed, mCapacity + size, Float.POSITIVE_INFINITY);
+        Arrays.fill(mMax, mCapacity + size - removed, mCapacity + size, Float.NEGATIVE_INFINITY);
+        mSize = size - removed;
+        rebuildParents(from, size);
+    }
+
+    void clear() {
+        Arrays.fill(mMin, Float.POSITIVE_INFINITY);
+        Arrays.fill(mMax, Float.NEGATIVE_INFINITY);
+        mSize = 0;
+    }
+
+    private void clearLeaf(int index) {
+        final int i = index + mCapacity;
+        mMin[i] = Float.POSITIVE_INFINITY;
+        mMax[i] = Float.NEGATIVE_INFINITY;
+        updateParents(i);
+    }
+
+    private void updateParents(int leaf) {
+        for (int i = leaf >> 1; i > 0; i >>= 1) {
+            mMin[i] = Math.min(mMin[2 * i], mMin[2 * i + 1]);
+            mMax[i] = Math.max(mMax[2 * i], mMax[2 * i + 1]);
+        }
+    }
+
+    /***
+     * 重新计算叶子区间[from, to)的所有祖先节点
+     */
+    private void rebuildParents(int from, int to) {
+        int l = (from + mCapacity) >> 1;
+        int r = (to - 1 + mCapacity) >> 1;
+        while (l > 0) {
+            for (int i = l; i <= r; i++) {
+                mMin[i] = Math.min(mMin[2 * i], mMin[2 * i + 1]);
+                mMax[i] = Math.max(mMax[2 * i], mMax[2 * i + 1]);
+            }
+            l >>= 1;
+            r >>= 1;
+        }
+    }
+
+    private void grow() {
+        final float[] min = mMin;
+        final float[] max = mMax;
+        final int oldCapacity = mCapacity;
+        allocate(oldCapacity * 2);
+        System.arraycopy(min, oldCapacity, mMin, mCapacity, mSize);
+        System.arraycopy(max, oldCapacity, mMax, mCapacity, mSize);
+        rebuildParents(0, mCapacity);
+    }
+
+    private void allocate(int capacity) {
+        mCapacity = capacity;
+        mMin = new float[capacity * 2];
+        mMax = new float[capacity * 2];
+        Arrays.fill(mMin, Float.POSITIVE_INFINITY);
+        Arrays.fill(mMax, Float.NEGATIVE_INFINITY);
+    }
+
+    private static int capacityFor(int count) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < count) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
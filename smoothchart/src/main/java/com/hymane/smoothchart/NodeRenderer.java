@@ -0,0 +1,51 @@
+package com.hymane.smoothchart;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-29
+ * Description: 批量绘制节点。节点画笔为圆头线帽、线宽等于节点直径，
+ * 一次drawPoints画出所有圆点，圆环再用内圆画笔画一次，不再每个节点调用drawCircle。
+ * 节点间距小于节点直径时节点会重叠成一条粗线，此时不绘制节点
+ */
+class NodeRenderer {
+    private float[] mPoints = new float[0];//x、y交替保存的坐标，复用
+
+    /***
+     * @param nodePaint 节点画笔，线宽为节点外径
+     * @param innerPaint 圆环内圆画笔，线宽为内圆直径，只在圆环样式时使用
+     * @return 绘制的节点个数，节点过密时为0
+     */
+    int draw(Canvas canvas, CurveGeometry geometry, int nodeStyle, Paint nodePaint, Paint innerPaint) {
+        final int count = geometry.mPointCount;
+        if (count == 0 || isCrowded(geometry, nodePaint.getStrokeWidth())) {
+            return 0;
+        }
+        if (mPoints.length < count * 2) {
+            mPoints = new float[count * 2];
+        }
+        final float[] points = mPoints;
+        final float[] pointX = geometry.mPointX;
+        final float[] pointY = geometry.mPointY;
+        for (int i = 0; i < count; i++) {
+            points[2 * i] = pointX[i];
+            points[2 * i + 1] = pointY[i];
+        }
+        canvas.drawPoints(points, 0, count * 2, nodePaint);
+        if (nodeStyle == SmoothLineChartView.NODE_STYLE_RING) {
+            canvas.drawPoints(points, 0, count * 2, innerPaint);
+        }
+        return count;
+    }
+
+    /***
+     * 坐标点的平均间距是否小于节点直径
+     */
+    static boolean isCrowded(CurveGeometry geometry, float diameter) {
+        final int count = geometry.mPointCount;
+        return count > 1 && geometry.mPointX[count - 1] - geometry.mPointX[0] < (count - 1) * diameter;
+    }
+}
@@ -0,0 +1,11 @@
+package com.hymane.smoothchart;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-05-01
+ * Description: 每帧绘制完成后回调，metrics由视图复用，只在回调中有效，需要保存时调用{@link FrameMetrics#copyTo(FrameMetrics)}
+ */
+public interface OnFrameMetricsListener {
+    void onFrameMetrics(SmoothLineChartView chartView, FrameMetrics metrics);
+}
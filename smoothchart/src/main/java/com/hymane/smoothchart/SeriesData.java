@@ -0,0 +1,457 @@
+package com.hymane.smoothchart;
+
+import java.util.Arrays;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-16
+ * Description: 曲线数据集，使用原始类型数组保存节点数值，避免List<Float>装箱带来的对象分配。
+ * 设置窗口大小后作为环形缓冲区使用，超出窗口的旧节点O(1)淘汰，内存占用固定
+ */
+class SeriesData implements SeriesSource {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private float[] mValues;//节点数值
+    private String[] mLabels;//x轴刻度文字，可为空
+    private long[] mTimes;//节点时间戳，第一次push时才分配
+    private final MinMaxTree mRange = new MinMaxTree();//按物理位置保存的最大最小值
+    private int mHead;//第一个节点的物理位置，只有窗口已满时才会移动
+    private int mSize;
+    private int mWindowSize;//窗口大小，0表示不限制
+    private long mModCount;//数据每次修改加1，用于判断抽样缓存是否过期
+
+    SeriesData() {
+        mValues = new float[DEFAULT_CAPACITY];
+        mLabels = new String[DEFAULT_CAPACITY];
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public float get(int index) {
+        return mValues[physical(index)];
+    }
+
+    String getLabel(int index) {
+        return mLabels[physical(index)];
+    }
+
+    @Override
+    public long getTime(int index) {
+        final int position = physical(index);
+        return mTimes == null ? 0 : mTimes[position];
+    }
+
+    @Override
+    public boolean hasTimes() {
+        return mTimes != null;
+    }
+
+    @Override
+    public float min() {
+        return mRange.min();
+    }
+
+    @Override
+    public float max() {
+        return mRange.max();
+    }
+
+    /***
+     * [from, to)区间内最小值所在的节点位置，通过线段树查询，O(log n)
+     */
+    @Override
+    public int minIndex(int from, int to) {
+        return find(from, to, true);
+    }
+
+    @Override
+    public int maxIndex(int from, int to) {
+        return find(from, to, false);
+    }
+
+    /***
+     * 线段树按物理位置保存，环形缓冲区跨过数组末尾时分两段查询，值相同时返回靠前的节点
+     */
+    private int find(int from, int to, boolean min) {
+        if (from < 0 || to > mSize || from >= to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + mSize);
+        }
+        final int length = mValues.length;
+        int start = mHead + from;
+        if (start >= length) {
+            start -= length;
+        }
+        final int end = start + to - from;
+        if (end <= length) {
+            return logical(min ? mRange.minIndex(start, end) : mRange.maxIndex(start, end));
+        }
+        final int first = min ? mRange.minIndex(start, length) : mRange.maxIndex(start, length);
+        final int second = min ? mRange.minIndex(0, end - length) : mRange.maxIndex(0, end - length);
+        final float a = mValues[first];
+        final float b = mValues[second];
+        return logical(min ? (b < a ? second : first) : (b > a ? second : first));
+    }
+
+    /***
+     * 物理位置对应的节点位置
+     */
+    private int logical(int position) {
+        return position >= mHead ? position - mHead : position + mValues.length - mHead;
+    }
+
+    int getWindowSize() {
+        return mWindowSize;
+    }
+
+    long modCount() {
+        return mModCount;
+    }
+
+    /***
+     * 生成后台计算用的快照，只按顺序复制节点数值和时间戳，不复制x刻度和线段树，
+     * target的数据版本相同时不复制。快照只能读取，查询区间最值前需要在读取的线程调用{@link #buildRange()}
+     * @return 是否复制了数据
+     */
+    boolean snapshotTo(SeriesData target) {
+        if (target.mModCount == mModCount && target.mSize == mSize) {
+            return false;
+        }
+        if (target.mValues.length < mSize) {
+            target.mValues = new float[mValues.length];
+        }
+        //环形缓冲区分两段复制，快照从0开始
+        final int first = Math.min(mSize, mValues.length - mHead);
+        System.arraycopy(mValues, mHead, target.mValues, 0, first);
+        System.arraycopy(mValues, 0, target.mValues, first, mSize - first);
+        if (mTimes == null) {
+            target.mTimes = null;
+        } else {
+            if (target.mTimes == null || target.mTimes.length < mSize) {
+                target.mTimes = new long[mTimes.length];
+            }
+            System.arraycopy(mTimes, mHead, target.mTimes, 0, first);
+            System.arraycopy(mTimes, 0, target.mTimes, first, mSize - first);
+        }
+        target.mHead = 0;
+        target.mSize = mSize;
+        target.mWindowSize = 0;
+        target.mModCount = mModCount;
+        return true;
+    }
+
+    /***
+     * 按快照中的节点重建线段树，O(n)，在后台线程调用
+     */
+    void buildRange() {
+        mRange.build(mValues, 0, mSize);
+    }
+
+    /***
+     * 设置窗口大小，已有数据只保留最新的windowSize个
+     * @param windowSize 0表示不限制
+     */
+    void setWindowSize(int windowSize) {
+        if (windowSize < 0) {
+            throw new IllegalArgumentException("windowSize must not be negative");
+        }
+        normalize();
+        final int drop = windowSize > 0 ? Math.max(0, mSize - windowSize) : 0;
+        final int size = mSize - drop;
+        final int capacity = windowSize > 0 ? windowSize : Math.max(DEFAULT_CAPACITY, size);
+        final float[] values = new float[capacity];
+        final String[] labels = new String[capacity];
+        System.arraycopy(mValues, drop, values, 0, size);
+        System.arraycopy(mLabels, drop, labels, 0, size);
+        if (mTimes != null) {
+            final long[] times = new long[capacity];
+            System.arraycopy(mTimes, drop, times, 0, size);
+            mTimes = times;
+        }
+        mValues = values;
+        mLabels = labels;
+        mSize = size;
+        mWindowSize = windowSize;
+        mRange.build(mValues, 0, mSize);
+        mModCount++;
+    }
+
+    /***
+     * 替换全部数据，labels为空时不显示x刻度，设置了窗口时只保留最后的windowSize个
+     */
+    void set(float[] values, int offset, int count, String[] labels) {
+        if (offset < 0 || count < 0 || offset + count > values.length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", count: " + count + ", length: " + values.length);
+        }
+        if (labels != null && labels.length < count) {
+            throw new IllegalArgumentException("labels's size should be same as values's");
+        }
+        final int drop = mWindowSize > 0 ? Math.max(0, count - mWindowSize) : 0;
+        final int size = count - drop;
+        ensureCapacity(size);
+        Arrays.fill(mLabels, null);
+        System.arraycopy(values, offset + drop, mValues, 0, size);
+        if (labels != null) {
+            System.arraycopy(labels, drop, mLabels, 0, size);
+        }
+        mTimes = null;
+        mHead = 0;
+        mSize = size;
+        mRange.build(mValues, 0, mSize);
+        mModCount++;
+    }
+
+    /***
+     * 替换全部数据，节点带时间戳
+     * @param times 与values[offset]开始的节点一一对应，必须单调不减
+     */
+    void set(float[] values, long[] times, int offset, int count) {
+        if (times.length < offset + count) {
+            throw new IllegalArgumentException("times's size should be same as values's");
+        }
+        for (int i = offset + 1; i < offset + count; i++) {
+            if (times[i] < times[i - 1]) {
+                throw new IllegalArgumentException("timestamps must be in ascending order");
+            }
+        }
+        final long[] reuse = mTimes;
+        set(values, offset, count, null);
+        mTimes = reuse != null && reuse.length == mValues.length ? reuse : new long[mValues.length];
+        System.arraycopy(times, offset + count - mSize, mTimes, 0, mSize);
+    }
+
+    /***
+     * 追加节点，窗口已满时覆盖最旧的节点
+     * @return 是否淘汰了最旧的节点
+     * @throws IllegalStateException 已有节点带时间戳
+     */
+    boolean add(float value, String label) {
+        checkNoTimes();
+        return add(value, label, 0, false);
+    }
+
+    /***
+     * 追加带时间戳的节点
+     * @throws IllegalStateException 已有不带时间戳的节点
+     */
+    boolean push(float value, long time) {
+        checkTimes();
+        if (mTimes != null && mSize > 0 && time < getTime(mSize - 1)) {
+            throw new IllegalArgumentException("timestamp must not be earlier than the last one");
+        }
+        return add(value, null, time, true);
+    }
+
+    private boolean add(float value, String label, long time, boolean hasTime) {
+        if (hasTime && mTimes == null) {
+            mTimes = new long[mValues.length];
+        }
+        mModCount++;
+        if (mWindowSize > 0 && mSize == mWindowSize) {
+            //窗口已满，覆盖最旧的节点并移动头部
+            final int position = mHead;
+            write(position, value, label, time);
+            mRange.set(position, value);
+            mHead = position + 1 == mValues.length ? 0 : position + 1;
+            return true;
+        }
+        ensureCapacity(mSize + 1);
+        write(mSize, value, label, time);
+        mRange.append(value);
+        mSize++;
+        return false;
+    }
+
+    /***
+     * 批量追加节点，不限制窗口时只复制一次数组，O(count + log n)
+     * @param labels 可为空，从0开始与values[offset]对应
+     * @return 淘汰的旧节点个数
+     */
+    int addAll(float[] values, int offset, int count, String[] labels) {
+        if (offset < 0 || count < 0 || offset + count > values.length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", count: " + count + ", length: " + values.length);
+        }
+        if (labels != null && labels.length < count) {
+            throw new IllegalArgumentException("labels's size should be same as values's");
+        }
+        checkNoTimes();
+        if (mWindowSize > 0) {
+            //环形缓冲区逐个覆盖，每个节点O(log n)
+            int evicted = 0;
+            for (int i = 0; i < count; i++) {
+                if (add(values[offset + i], labels == null ? null : labels[i], 0, false)) {
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+        ensureCapacity(mSize + count);
+        System.arraycopy(values, offset, mValues, mSize, count);
+        if (labels != null) {
+            System.arraycopy(labels, 0, mLabels, mSize, count);
+        }
+        mRange.appendAll(mValues, mSize, count);
+        mSize += count;
+        mModCount++;
+        return 0;
+    }
+
+    /***
+     * 不带时间戳追加时，已有节点不能带时间戳，否则补0会破坏时间的单调性，按时间的二分查找和刻度都依赖单调性。
+     * 节点已全部删除时丢弃时间戳数组
+     */
+    void checkNoTimes() {
+        if (mTimes == null) {
+            return;
+        }
+        if (mSize > 0) {
+            throw new IllegalStateException("series has timestamps, append with push(value, timestamp)");
+        }
+        mTimes = null;
+    }
+
+    /***
+     * 带时间戳追加时，已有节点必须带时间戳，否则已有节点的时间戳补0，与{@link #checkNoTimes()}相对
+     */
+    void checkTimes() {
+        if (mTimes == null && mSize > 0) {
+            throw new IllegalStateException("series has values without timestamps, append with add(value, label)");
+        }
+    }
+
+    /***
+     * 修改指定节点的值，O(log n)
+     */
+    void replace(int index, float value) {
+        final int position = physical(index);
+        mValues[position] = value;
+        mRange.set(position, value);
+        mModCount++;
+    }
+
+    /***
+     * 删除[from, to)的节点，后续节点只移动一次
+     */
+    void removeRange(int from, int to) {
+        if (from < 0 || to > mSize || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + mSize);
+        }
+        if (from == to) {
+            return;
+        }
+        normalize();
+        final int moved = mSize - to;
+        System.arraycopy(mValues, to, mValues, from, moved);
+        System.arraycopy(mLabels, to, mLabels, from, moved);
+        if (mTimes != null) {
+            System.arraycopy(mTimes, to, mTimes, from, moved);
+        }
+        final int size = mSize - (to - from);
+        Arrays.fill(mLabels, size, mSize, null);
+        mSize = size;
+        mRange.removeRange(from, to);
+        mModCount++;
+    }
+
+    void remove(int index) {
+        checkIndex(index);
+        normalize();
+        final int moved = mSize - index - 1;
+        if (moved > 0) {
+            System.arraycopy(mValues, index + 1, mValues, index, moved);
+            System.arraycopy(mLabels, index + 1, mLabels, index, moved);
+            if (mTimes != null) {
+                System.arraycopy(mTimes, index + 1, mTimes, index, moved);
+            }
+        }
+        mSize--;
+        mLabels[mSize] = null;
+        mRange.remove(index);
+        mModCount++;
+    }
+
+    void clear() {
+        Arrays.fill(mLabels, null);
+        mTimes = null;
+        mHead = 0;
+        mSize = 0;
+        mRange.clear();
+        mModCount++;
+    }
+
+    private void write(int position, float value, String label, long time) {
+        mValues[position] = value;
+        mLabels[position] = label;
+        if (mTimes != null) {
+            mTimes[position] = time;
+        }
+    }
+
+    private int physical(int index) {
+        checkIndex(index);
+        final int position = mHead + index;
+        return position < mValues.length ? position : position - mValues.length;
+    }
+
+    /***
+     * 把环形缓冲区展开成从0开始的连续数组，只在删除中间节点等少见操作时调用
+     */
+    private void normalize() {
+        if (mHead == 0) {
+            return;
+        }
+        mValues = rotate(mValues, mHead);
+        mLabels = rotate(mLabels, mHead);
+        if (mTimes != null) {
+            mTimes = rotate(mTimes, mHead);
+        }
+        mHead = 0;
+        mRange.build(mValues, 0, mSize);
+    }
+
+    private static float[] rotate(float[] array, int head) {
+        final float[] result = new float[array.length];
+        System.arraycopy(array, head, result, 0, array.length - head);
+        System.arraycopy(array, 0, result, array.length - head, head);
+        return result;
+    }
+
+    private static long[] rotate(long[] array, int head) {
+        final long[] result = new long[array.length];
+        System.arraycopy(array, head, result, 0, array.length - head);
+        System.arraycopy(array, 0, result, array.length - head, head);
+        return result;
+    }
+
+    private static String[] rotate(String[] array, int head) {
+        final String[] result = new String[array.length];
+        System.arraycopy(array, head, result, 0, array.length - head);
+        System.arraycopy(array, 0, result, array.length - head, head);
+        return result;
+    }
+
+    /***
+     * 不限制窗口时按需扩容，此时mHead始终为0
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mValues.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mValues.length + (mValues.length >> 1));
+        mValues = Arrays.copyOf(mValues, newCapacity);
+        mLabels = Arrays.copyOf(mLabels, newCapacity);
+        if (mTimes != null) {
+            mTimes = Arrays.copyOf(mTimes, newCapacity);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + mSize);
+        }
+    }
+}
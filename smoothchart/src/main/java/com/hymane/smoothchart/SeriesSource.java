@@ -0,0 +1,39 @@
+package com.hymane.smoothchart;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-05-05
+ * Description: 曲线读取节点数据的接口。外部数据源只读，通过
+ * {@link SmoothLineChartView#setSeriesSource(SeriesSource)}设置后不会被复制，
+ * 开启异步计算时会在后台线程读取，实现需要支持并发读
+ */
+public interface SeriesSource {
+    int size();
+
+    float get(int index);
+
+    /***
+     * 节点时间戳，单位毫秒，单调不减，没有时间戳时返回0
+     */
+    long getTime(int index);
+
+    boolean hasTimes();
+
+    /***
+     * 全部节点的最小值
+     */
+    float min();
+
+    float max();
+
+    /***
+     * [from, to)区间内最小值所在的节点位置，用于按像素列抽样
+     */
+    int minIndex(int from, int to);
+
+    /***
+     * [from, to)区间内最大值所在的节点位置
+     */
+    int maxIndex(int from, int to);
+}
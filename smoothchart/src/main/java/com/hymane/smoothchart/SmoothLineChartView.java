@@ -4,23 +4,27 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.PointF;
 import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Debug;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.IntDef;
 import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.GestureDetector;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
+import android.view.ViewParent;
+import android.widget.OverScroller;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Author   :hymane
@@ -31,18 +35,41 @@ import java.util.List;
 public class SmoothLineChartView extends View {
     public static final int NODE_STYLE_CIRCLE = 0;
     public static final int NODE_STYLE_RING = 1;
+    //节点数超过曲线宽度像素数2倍时的抽样方式
+    public static final int DOWNSAMPLE_NONE = 0;
+    public static final int DOWNSAMPLE_LTTB = 1;
+    public static final int DOWNSAMPLE_MIN_MAX = 2;
+    //后台线程写入的队列满时的处理方式
+    public static final int BACKPRESSURE_DROP_OLDEST = 0;
+    public static final int BACKPRESSURE_DROP_NEWEST = 1;
 
     public static final int TOUCH_MIN_DISTANCE = 35;
     private static final int CHART_COLOR = 0xFF0099CC;//默认线条颜色
     private static final int CIRCLE_SIZE = 8;//默认节点圆直径
     private static final int SELECTED_CIRCLE_SIZE = 15;//默认选中的节点圆直径
     private static final int STROKE_SIZE = 2;//默认节点圆环宽度
-    private static final float SMOOTHNESS = 0.35f; // the higher the smoother, but don't go over 0.5
     private static final int TEXT_POSITION_OFFSET = 2;
+    private static final int ASYNC_MIN_SIZE = 2000;//异步计算时，少于该节点数仍在UI线程计算
+    private static final float MIN_VIEWPORT_SPAN = 2;//放大后最少显示的节点间隔数
+    private static final float LABEL_GAP = 1.5f;//x刻度文字中心间距至少为文字宽度的1.5倍
 
     private final Context mContext;
-    private final Paint mPaint;//画笔
-    private final Path mPath;//曲线路径
+    //每一层使用单独的画笔，只在样式变化时修改，绘制时不再重复设置
+    private final Paint mLinePaint;//曲线画笔
+    private final Paint mAreaPaint;//投影区域画笔
+    private final Paint mNodePaint;//节点画笔，圆头画点，线宽为节点外径
+    private final Paint mInnerNodePaint;//圆环内圆画笔，线宽为内圆直径
+    private final Paint mHighlightPaint;//选中节点高亮画笔
+    private final Paint mCrosshairPaint;//拖动查看时的竖直准线
+    private final Paint mTextPaint;//选中节点数值画笔
+    private final Paint mAxisTextPaint;//刻度画笔
+    private final Paint.FontMetricsInt mFontMetrics = new Paint.FontMetricsInt();
+    private final TextWidthCache mTextWidths;//刻度和数值文字宽度，未命中时查询所有图表共用的缓存
+    private float mTextBaseline;//文字垂直居中时基线相对中心的偏移
+    //数值文字缓存，数值不变时复用
+    private final ValueText mSelectedText = new ValueText();
+    private final ValueText mTopText = new ValueText();
+    private final ValueText mMinText = new ValueText();
     private final float mCircleSize;//节点圆直径
     private final float mSelectedCircleSize;//选中节点圆直径
     private final float mStrokeSize;
@@ -64,285 +91,1790 @@ public class SmoothLineChartView extends View {
     private boolean mEnableShowTag;
     private boolean mCustomBorder;
     private int mDrawAreaColor;
-    //坐标点集合
-    private List<PointF> mPoints = new ArrayList<PointF>();
-    private List<Float> mValues;//节点数据集
-    private List<String> mXData;
+    //正在绘制的坐标点和曲线路径
+    private CurveGeometry mGeometry = new CurveGeometry();
+    private GeometryWorker mGeometryWorker;//异步计算时才创建
+    private CurveAnimator mAnimator;//开启动画时才创建
+    private CurveGeometry mShownGeometry = mGeometry;//本帧绘制的坐标，动画进行中时为插值后的坐标
+    private final CurveGeometry.Layout mLayout = new CurveGeometry.Layout();
+    private int mDownsampleMode = DOWNSAMPLE_LTTB;
+    //时间轴，开启且节点带时间戳时按时间计算x坐标，自动生成刻度
+    private boolean mTimeAxisEnabled;
+    private final TimeTicks mTimeTicks = new TimeTicks();
+    private final SeriesData mData = new SeriesData();//节点数据集
+    private SeriesSource mSource = mData;//绘制时读取的数据，默认为内存中的节点数据集
+    private final List<ChartSeries> mSeries = new ArrayList<>();//附加曲线
+    private final NodeRenderer mNodeRenderer = new NodeRenderer();//所有曲线共用
     private Bitmap mTagBitmap;
     private Bitmap mTagBitmapReverse;
     private Drawable mTagDrawable;
+    private boolean mAttached;//是否已添加到窗口，只有添加到窗口时才持有共用标签位图的引用
+    private Object mTagSource;//标签图片的资源id或位图，从窗口移除后再添加时重新获取共用的位图
+    private ChartResources.Tag mTag;
+    private ChartResources.Tag mTagReverse;
     private float mMinY;    //最小y刻度值
     private float mMaxY;    //最大y刻度值
     private OnChartClickListener mChartClickListener;
     private int mSelectedNode = -1;
+    //已有节点是否被修改，需要重新计算全部坐标
+    private boolean mGeometryDirty = true;
+    //批量修改的嵌套层数，大于0时推迟y轴范围和曲线的更新
+    private int mUpdateDepth;
+    private boolean mPendingChange;//批量修改期间数据是否变化
+    private boolean mPendingDirty;//批量修改期间是否修改了已有节点
+    //数据或布局的版本，每次变化加1，用于丢弃过期的异步计算结果
+    private long mGeometryGeneration;
+    private long mRequestedGeneration;
+    private boolean mAsyncGeometry;
+    //可见节点区间[mViewportStart, mViewportEnd]，mFitAll为true时显示全部节点
+    private boolean mFitAll = true;
+    private float mViewportStart;
+    private float mViewportEnd;
+    private boolean mViewportEnabled;//是否可以手势平移和缩放
+    private boolean mAxisFollowViewport;//非自定义的y轴范围是否只包含可见区间的节点
+    //拖动查看：按住后沿x方向拖动，选中最近的节点并显示竖直准线，每帧最多查找一次节点、刷新一次
+    private boolean mScrubEnabled;
+    private boolean mScrubbing;
+    private boolean mScrubScheduled;
+    private float mScrubX;//最新的触摸位置，下一帧查找节点
+    private final Choreographer.FrameCallback mScrubCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mScrubScheduled = false;
+            applyScrub();
+        }
+    };
+    private GestureDetector mGestureDetector;
+    private ScaleGestureDetector mScaleDetector;
+    private OverScroller mScroller;
+    private float mFlingStep;//惯性滑动时每个节点的像素宽度
+    //曲线层和节点层的位图缓存，选中节点变化时只重新绘制高亮层
+    private boolean mLayerCacheEnabled;
+    private final LayerCache mStaticLayer = new LayerCache();
+    private final LayerCache mNodeLayer = new LayerCache();
+    private CurveGeometry mLayerGeometry;//缓存绘制时使用的坐标
+    private long mLayerGeometryGeneration;
+    private long mLayerGeneration;
+    //上次绘制缓存层后只追加节点时需要重新绘制的区域，mLayerDamageValid为false时整层重新绘制
+    private final Rect mLayerDamage = new Rect();
+    private boolean mLayerDamageValid;
+    private final Rect mDamage = new Rect();//局部刷新区域，复用
+    //绘制统计，关闭时除一次布尔判断外没有额外开销
+    private boolean mFrameMetricsEnabled;
+    private final FrameMetrics mFrameMetrics = new FrameMetrics();
+    private OnFrameMetricsListener mFrameMetricsListener;
+    private boolean mAllocationCountingEnabled;
+    private int mFrameAllocations;//开始绘制时已分配的对象个数
+    private int mFrameTextHits;
+    private int mFrameTextMisses;
+    //后台线程写入的节点队列，UI线程每帧取出一次，所有节点合并为一次刷新
+    private volatile IngestQueue mIngestQueue;
+    private Choreographer mChoreographer;
+    private final AtomicBoolean mIngestScheduled = new AtomicBoolean();
+    private float[] mIngestValues;
+    private long[] mIngestTimes;
+    private final Choreographer.FrameCallback mIngestCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            drainIngestQueue();
+        }
+    };
+
+    @IntDef({NODE_STYLE_CIRCLE, NODE_STYLE_RING})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface NodeStyle {
+    }
+
+    @IntDef({DOWNSAMPLE_NONE, DOWNSAMPLE_LTTB, DOWNSAMPLE_MIN_MAX})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface DownsampleMode {
+    }
+
+    @IntDef({BACKPRESSURE_DROP_OLDEST, BACKPRESSURE_DROP_NEWEST})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface BackpressurePolicy {
+    }
+
+    public SmoothLineChartView(Context context) {
+        this(context, null, 0);
+    }
+
+    public SmoothLineChartView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public SmoothLineChartView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        mContext = context;
+        mTextWidths = new TextWidthCache(ChartResources.get(context));
+        float scale = context.getResources().getDisplayMetrics().density;
+        mCircleSize = scale * CIRCLE_SIZE;
+        mStrokeSize = scale * STROKE_SIZE;
+        mSelectedCircleSize = scale * SELECTED_CIRCLE_SIZE;
+        mEnableDrawArea = true;
+        mEnableShowTag = true;
+        mDrawAreaColor = (CHART_COLOR & 0xFFFFFF) | 0x10000000;
+        mLineColor = CHART_COLOR;
+        mCircleColor = CHART_COLOR;
+        mInnerCircleColor = Color.WHITE;
+        mTextColor = Color.WHITE;
+        mTextSize = DensityUtils.sp2px(context, 12);
+        mTextOffset = TEXT_POSITION_OFFSET;
+        mNodeStyle = NODE_STYLE_CIRCLE;
+        mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mLinePaint.setStyle(Paint.Style.STROKE);
+        mLinePaint.setStrokeWidth(mStrokeSize);
+        mLinePaint.setColor(mLineColor);
+        mAreaPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mAreaPaint.setStyle(Paint.Style.FILL);
+        mAreaPaint.setColor(mDrawAreaColor);
+        mHighlightPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mHighlightPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+        mHighlightPaint.setStrokeWidth(mStrokeSize);
+        mCrosshairPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mCrosshairPaint.setStyle(Paint.Style.STROKE);
+        mCrosshairPaint.setStrokeWidth(mStrokeSize / 2);
+        //节点圆半径为mCircleSize/2，外侧再加半个线宽
+        mNodePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mNodePaint.setStyle(Paint.Style.STROKE);
+        mNodePaint.setStrokeCap(Paint.Cap.ROUND);
+        mNodePaint.setStrokeWidth(mCircleSize + mStrokeSize);
+        setCircleColor(mCircleColor);
+        mInnerNodePaint = new Paint(mNodePaint);
+        mInnerNodePaint.setStrokeWidth(mCircleSize - mStrokeSize);
+        mInnerNodePaint.setColor(mInnerCircleColor);
+        mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mTextPaint.setColor(mTextColor);
+        mAxisTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mAxisTextPaint.setColor(Color.RED);
+        setTextSize(mTextSize);
+        mBorder = 2 * mCircleSize;
+    }
+
+    /***
+     * 设置路径节点
+     */
+    public void setData(List<Float> yValues, List<String> xValue) {
+        if (yValues == null || xValue == null) {
+            throw new IllegalArgumentException("valuse can not be null");
+        } else if (yValues.size() != xValue.size()) {
+            throw new IllegalArgumentException("yValues's size should be same as xValue's");
+        }
+        final int size = yValues.size();
+        final float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = yValues.get(i);
+        }
+        setDataInternal(values, 0, size, xValue.toArray(new String[size]));
+    }
+
+    /***
+     * 设置路径节点，直接使用原始类型数组，不显示x刻度
+     * @param yValues 节点数值，会被复制，调用后可以复用
+     * @param offset 起始位置
+     * @param count 节点个数
+     */
+    public void setData(float[] yValues, int offset, int count) {
+        if (yValues == null) {
+            throw new IllegalArgumentException("valuse can not be null");
+        }
+        setDataInternal(yValues, offset, count, null);
+    }
+
+    /***
+     * 设置带时间戳的路径节点，配合{@link #setTimeAxisEnabled(boolean)}按时间显示，节点间隔可以不均匀
+     * @param timestamps 节点时间，单位毫秒，必须单调不减，与yValues[offset]开始的节点一一对应
+     */
+    public void setData(float[] yValues, long[] timestamps, int offset, int count) {
+        if (yValues == null || timestamps == null) {
+            throw new IllegalArgumentException("valuse can not be null");
+        }
+        final boolean captured = captureTransition(CurveAnimator.TRANSITION_MORPH);
+        try {
+            mData.set(yValues, timestamps, offset, count);
+        } catch (RuntimeException e) {
+            releaseTransition(captured);
+            throw e;
+        }
+        onDataChanged(false);
+    }
+
+    private void setDataInternal(float[] yValues, int offset, int count, String[] xValues) {
+        final boolean captured = captureTransition(CurveAnimator.TRANSITION_MORPH);
+        try {
+            mData.set(yValues, offset, count, xValues);
+        } catch (RuntimeException e) {
+            releaseTransition(captured);
+            throw e;
+        }
+        onDataChanged(false);
+    }
+
+    /***
+     * 开始批量修改，到对应的{@link #endUpdate()}为止，期间的修改只在结束时
+     * 更新一次y轴范围、计算一次曲线并刷新一次，可以嵌套调用
+     */
+    public void beginUpdate() {
+        mUpdateDepth++;
+    }
+
+    public void endUpdate() {
+        if (mUpdateDepth == 0) {
+            throw new IllegalStateException("endUpdate() without beginUpdate()");
+        }
+        if (--mUpdateDepth > 0 || !mPendingChange) {
+            return;
+        }
+        final boolean appended = !mPendingDirty;
+        mPendingChange = false;
+        mPendingDirty = false;
+        onDataChanged(appended);
+    }
+
+    /***
+     * 批量追加节点，不限制窗口时只复制一次数组，y轴范围和曲线只更新一次
+     * @param xValues x刻度，可为空
+     */
+    public void addAll(float[] yValues, String[] xValues) {
+        if (yValues == null) {
+            throw new IllegalArgumentException("valuse can not be null");
+        }
+        addAll(yValues, 0, yValues.length, xValues);
+    }
+
+    /***
+     * @param xValues x刻度，可为空，从0开始与yValues[offset]对应
+     * @throws IllegalStateException 已有节点带时间戳，需要用{@link #push(float, long)}追加
+     */
+    public void addAll(float[] yValues, int offset, int count, String[] xValues) {
+        if (yValues == null) {
+            throw new IllegalArgumentException("valuse can not be null");
+        }
+        mData.checkNoTimes();
+        final boolean captured = captureTransition(CurveAnimator.TRANSITION_SLIDE);
+        final int evicted;
+        try {
+            evicted = mData.addAll(yValues, offset, count, xValues);
+        } catch (RuntimeException e) {
+            releaseTransition(captured);
+            throw e;
+        }
+        if (evicted > 0) {
+            shiftSelection(0, evicted);
+            if (mAnimator != null) {
+                mAnimator.onEvicted(evicted);
+            }
+        }
+        onDataChanged(evicted == 0);
+    }
+
+    /***
+     * 修改指定节点的值
+     */
+    public void replace(int position, float value) {
+        final boolean captured = captureTransition(CurveAnimator.TRANSITION_MORPH);
+        try {
+            mData.replace(position, value);
+        } catch (RuntimeException e) {
+            releaseTransition(captured);
+            throw e;
+        }
+        onDataChanged(false);
+    }
+
+    /***
+     * 删除[from, to)的节点，后面的节点只移动一次
+     */
+    public void removeRange(int from, int to) {
+        final boolean captured = captureTransition(CurveAnimator.TRANSITION_MORPH);
+        try {
+            mData.removeRange(from, to);
+        } catch (RuntimeException e) {
+            releaseTransition(captured);
+            throw e;
+        }
+        shiftSelection(from, to - from);
+        onDataChanged(false);
+    }
+
+    /***
+     * 删除了从from开始的count个节点，选中节点被删除时取消选中，在其后时前移
+     */
+    private void shiftSelection(int from, int count) {
+        if (mSelectedNode < from) {
+            return;
+        }
+        mSelectedNode = mSelectedNode < from + count ? -1 : mSelectedNode - count;
+    }
+
+    /***
+     * 数据变化后更新y轴范围和曲线，批量修改期间推迟到{@link #endUpdate()}
+     * @param appended 是否只追加了节点，已有节点没变
+     */
+    private void onDataChanged(boolean appended) {
+        if (mSource != mData) {
+            //修改内存中的数据后不再显示外部数据源
+            mSource = mData;
+            appended = false;
+        }
+        if (mUpdateDepth > 0) {
+            mPendingChange = true;
+            mPendingDirty |= !appended;
+            return;
+        }
+        if (updateAxisRange() || !appended) {
+            markGeometryDirty();
+        } else {
+            //y轴范围没变，下次绘制时只追加新节点的曲线
+            markGeometryAppended();
+        }
+    }
+
+    /***
+     * @throws IllegalStateException 已有节点带时间戳，需要用{@link #push(float, long)}追加
+     */
+    public void add(float value, String xString) {
+        mData.checkNoTimes();
+        captureTransition(CurveAnimator.TRANSITION_SLIDE);
+        onAdded(mData.add(value, xString));
+    }
+
+    /***
+     * 追加带时间戳的节点，配合{@link #setWindowSize(int)}用于实时数据流
+     * @throws IllegalStateException 已有不带时间戳的节点，需要用{@link #add(float, String)}追加
+     */
+    public void push(float value, long timestamp) {
+        mData.checkTimes();
+        final boolean captured = captureTransition(CurveAnimator.TRANSITION_SLIDE);
+        final boolean evicted;
+        try {
+            evicted = mData.push(value, timestamp);
+        } catch (RuntimeException e) {
+            releaseTransition(captured);
+            throw e;
+        }
+        onAdded(evicted);
+    }
+
+    /***
+     * 开启后台线程写入，之后可以在任意一个线程调用{@link #offer(float, long)}。
+     * 必须在UI线程、生产者线程开始写入之前调用
+     * @param capacity 两帧之间最多缓存的节点个数，向上取整为2的幂
+     * @param policy 队列满时丢弃最旧的节点或丢弃新写入的节点
+     */
+    public void setIngestQueue(int capacity, @BackpressurePolicy int policy) {
+        if (mIngestQueue != null) {
+            drainIngestQueue();
+        }
+        if (mChoreographer == null) {
+            mChoreographer = Choreographer.getInstance();
+        }
+        final IngestQueue queue = new IngestQueue(capacity, policy);
+        mIngestValues = new float[queue.capacity()];
+        mIngestTimes = new long[queue.capacity()];
+        mIngestQueue = queue;
+    }
+
+    boolean hasIngestQueue() {
+        return mIngestQueue != null;
+    }
+
+    /***
+     * 从后台线程追加带时间戳的节点，不需要post到主线程。同一时刻只能有一个线程调用，
+     * UI线程在下一帧取出两帧之间写入的全部节点，只计算一次曲线并刷新一次。
+     * 早于最后一个节点的时间戳按最后一个节点的时间追加；已有不带时间戳的节点时忽略时间戳
+     * @return 节点是否入队，按{@link #BACKPRESSURE_DROP_NEWEST}且队列已满时返回false
+     */
+    public boolean offer(float value, long timestamp) {
+        final IngestQueue queue = mIngestQueue;
+        if (queue == null) {
+            throw new IllegalStateException("call setIngestQueue() before offer()");
+        }
+        final boolean offered = queue.offer(value, timestamp);
+        //每帧只注册一次回调，不会像post那样每个节点发送一条消息
+        if (!mIngestScheduled.get() && mIngestScheduled.compareAndSet(false, true)) {
+            mChoreographer.postFrameCallback(mIngestCallback);
+        }
+        return offered;
+    }
+
+    /***
+     * 队列满时丢弃的节点总数
+     */
+    public long getDroppedCount() {
+        final IngestQueue queue = mIngestQueue;
+        return queue == null ? 0 : queue.getDroppedCount();
+    }
+
+    /***
+     * 取出队列中的全部节点批量追加
+     */
+    private void drainIngestQueue() {
+        //先清除标记，取出期间写入的节点会注册下一帧的回调
+        mIngestScheduled.set(false);
+        final int count = mIngestQueue.drain(mIngestValues, mIngestTimes);
+        if (count == 0) {
+            return;
+        }
+        //生产者写入的时间戳可能早于已有的最后一个节点，在帧回调中抛出异常会使UI线程崩溃，
+        //这里把倒退的时间戳修正为上一个节点的时间
+        long last = mData.size() > 0 && mData.hasTimes() ? mData.getTime(mData.size() - 1) : Long.MIN_VALUE;
+        //已有不带时间戳的节点时忽略时间戳，按节点位置追加
+        final boolean timed = mData.size() == 0 || mData.hasTimes();
+        beginUpdate();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (timed) {
+                    last = Math.max(last, mIngestTimes[i]);
+                    push(mIngestValues[i], last);
+                } else {
+                    add(mIngestValues[i], null);
+                }
+            }
+        } finally {
+            endUpdate();
+        }
+    }
+
+    private void onAdded(boolean evicted) {
+        if (evicted) {
+            //最旧的节点被淘汰，所有节点前移一位
+            shiftSelection(0, 1);
+            if (mAnimator != null) {
+                mAnimator.onEvicted(1);
+            }
+        }
+        onDataChanged(!evicted);
+    }
+
+    /***
+     * 设置显示窗口大小，超过窗口的旧节点会被淘汰，内存占用保持不变
+     * @param windowSize 最多保留的节点个数，0表示不限制
+     */
+    public void setWindowSize(int windowSize) {
+        final boolean captured = captureTransition(CurveAnimator.TRANSITION_MORPH);
+        final int oldSize = mData.size();
+        try {
+            mData.setWindowSize(windowSize);
+        } catch (RuntimeException e) {
+            releaseTransition(captured);
+            throw e;
+        }
+        shiftSelection(0, oldSize - mData.size());
+        onDataChanged(false);
+    }
+
+    public int getWindowSize() {
+        return mData.getWindowSize();
+    }
+
+    public void remove(int position) {
+        final boolean captured = captureTransition(CurveAnimator.TRANSITION_MORPH);
+        try {
+            mData.remove(position);
+        } catch (RuntimeException e) {
+            releaseTransition(captured);
+            throw e;
+        }
+        shiftSelection(position, 1);
+        onDataChanged(false);
+    }
+
+    public void removeAll() {
+        if (mAnimator != null) {
+            mAnimator.cancel();
+        }
+        mData.clear();
+        mSelectedNode = -1;
+        mMaxY = 0;
+        mMinY = 0;
+        onDataChanged(false);
+    }
+
+    /***
+     * 设置只读的外部数据源，例如上千万个节点的{@link MappedSeriesSource}，数据不会被复制，
+     * 抽样时通过数据源的min/max查找只读取可见区间需要的数据。
+     * 之后调用setData、add等方法修改数据时恢复显示内存中的数据
+     * @param source 为空时恢复显示内存中的数据
+     */
+    public void setSeriesSource(SeriesSource source) {
+        if (mAnimator != null) {
+            mAnimator.cancel();
+        }
+        mData.clear();
+        mSelectedNode = -1;
+        mSource = source == null ? mData : source;
+        updateAxisRange();
+        markGeometryDirty();
+    }
+
+    public SeriesSource getSeriesSource() {
+        return mSource;
+    }
+
+    /***
+     * 添加一条曲线，与主曲线共用y轴范围、可见区间和x刻度，
+     * 所有曲线的坐标在同一次绘制中计算，不需要叠放多个视图
+     */
+    public void addSeries(ChartSeries series) {
+        if (series.mChart != null) {
+            throw new IllegalStateException("series has already been added to a chart");
+        }
+        series.mChart = this;
+        series.mDataDirty = true;
+        series.setStrokeSize(mCircleSize, mStrokeSize);
+        mSeries.add(series);
+        updateAxisRange();
+        markGeometryDirty();
+    }
+
+    public void removeSeries(ChartSeries series) {
+        if (mSeries.remove(series)) {
+            series.mChart = null;
+            series.mGeometry.reset();
+            updateAxisRange();
+            markGeometryDirty();
+        }
+    }
+
+    public int getSeriesCount() {
+        return mSeries.size();
+    }
+
+    public ChartSeries getSeries(int index) {
+        return mSeries.get(index);
+    }
+
+    /***
+     * 附加曲线的数据发生变化，由ChartSeries调用
+     */
+    void onSeriesChanged() {
+        //附加曲线的节点数和y轴范围都通过布局参数比较，主曲线不变时不会重新计算
+        onDataChanged(true);
+    }
+
+    /***
+     * 所有曲线中最多的节点个数，决定x方向的节点间距
+     */
+    private int getNodeCount() {
+        int count = mSource.size();
+        for (int i = 0, n = mSeries.size(); i < n; i++) {
+            count = Math.max(count, mSeries.get(i).mData.size());
+        }
+        return count;
+    }
+
+    /***
+     * 根据所有曲线节点的最大最小值更新非自定义的y轴范围
+     * @return y轴范围是否发生变化
+     */
+    private boolean updateAxisRange() {
+        if (getNodeCount() == 0) {
+            return false;
+        }
+        float max;
+        float min;
+        if (mAxisFollowViewport && !mFitAll) {
+            //只统计可见区间的节点，两侧各多包含一个节点，每条曲线O(log n)
+            final int from = Math.max(0, (int) Math.floor(mViewportStart));
+            final int to = (int) Math.ceil(mViewportEnd) + 1;
+            max = windowMax(mSource, from, to);
+            min = windowMin(mSource, from, to);
+            for (int i = 0, n = mSeries.size(); i < n; i++) {
+                final SeriesData data = mSeries.get(i).mData;
+                max = Math.max(max, windowMax(data, from, to));
+                min = Math.min(min, windowMin(data, from, to));
+            }
+        } else {
+            max = mSource.max();
+            min = mSource.min();
+            for (int i = 0, n = mSeries.size(); i < n; i++) {
+                final SeriesData data = mSeries.get(i).mData;
+                max = Math.max(max, data.max());
+                min = Math.min(min, data.min());
+            }
+        }
+        final float maxY = mCustomAxisMax ? mMaxY : max;
+        final float minY = mCustomAxisMin ? mMinY : min;
+        final boolean changed = maxY != mMaxY || minY != mMinY;
+        mMaxY = maxY;
+        mMinY = minY;
+        return changed;
+    }
+
+    private static float windowMax(SeriesSource data, int from, int to) {
+        to = Math.min(to, data.size());
+        return from < to ? data.get(data.maxIndex(from, to)) : Float.NEGATIVE_INFINITY;
+    }
+
+    private static float windowMin(SeriesSource data, int from, int to) {
+        to = Math.min(to, data.size());
+        return from < to ? data.get(data.minIndex(from, to)) : Float.POSITIVE_INFINITY;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        markGeometryDirty();
+    }
+
+    /***
+     * 标记节点坐标和曲线路径需要重新计算，
+     * 只有数据、y轴范围、边界和尺寸变化时才需要调用
+     */
+    private void markGeometryDirty() {
+        mGeometryDirty = true;
+        mGeometryGeneration++;
+        mLayerDamageValid = false;
+        invalidate();
+    }
+
+    /***
+     * 只追加了节点，已有节点没变，下次绘制时增量计算。
+     * 可见区间没变时只刷新新节点附近的区域，缓存层也只重新绘制该区域
+     */
+    private void markGeometryAppended() {
+        final boolean partial = appendDamage(mDamage);
+        mGeometryGeneration++;
+        if (!partial) {
+            mLayerDamageValid = false;
+            invalidate();
+            return;
+        }
+        mLayerDamage.union(mDamage);
+        if (!mDamage.isEmpty()) {
+            invalidate(mDamage);
+        }
+    }
+
+    /***
+     * 只追加节点且可见区间和y轴范围都没变时，需要重新绘制的区域：从原来的最后一段曲线（控制点依赖新节点）
+     * 到最后一个新节点，向下到视图底部，包括投影区域和x刻度。新节点都在可见区域外时为空
+     * @return 坐标还没有更新、正在播放动画或需要抽样等无法局部刷新的情况返回false
+     */
+    private boolean appendDamage(Rect out) {
+        final CurveGeometry geometry = mGeometry;
+        final int oldSize = geometry.mSize;
+        final int size = mSource.size();
+        if (mFitAll || mAsyncGeometry || mSource != mData || !mSeries.isEmpty() || mGeometryDirty
+                || geometry.mGeneration != mGeometryGeneration || geometry.isVisibleDownsampled()
+                || (mAnimator != null && mAnimator.isRunning()) || oldSize < 2 || size <= oldSize) {
+            return false;
+        }
+        //节点圆和线宽
+        float margin = mCircleSize + mStrokeSize;
+        float top = Float.MAX_VALUE;
+        for (int i = oldSize - 2; i < size; i++) {
+            top = Math.min(top, geometry.nodeY(mSource.get(i)));
+        }
+        if (!geometry.isTimeAxis()) {
+            for (int i = oldSize; i < size; i++) {
+                final String label = mData.getLabel(i);
+                if (label != null) {
+                    margin = Math.max(margin, mTextWidths.width(mAxisTextPaint, label) * 0.5f);
+                }
+            }
+        }
+        out.set((int) Math.floor(geometry.nodeX(mSource, oldSize - 2) - margin), (int) Math.floor(top - margin),
+                (int) Math.ceil(geometry.nodeX(mSource, size - 1) + margin), getMeasuredHeight());
+        if (!out.intersect(0, 0, getMeasuredWidth(), getMeasuredHeight())) {
+            out.setEmpty();
+        }
+        return true;
+    }
+
+    /***
+     * 更新正在绘制的坐标和路径。开启异步计算且节点较多时交给后台线程计算，
+     * 计算完成前继续绘制上一次的结果
+     */
+    private void updateGeometry() {
+        updateSeriesGeometry();
+        if (mAsyncGeometry && mSource.size() >= ASYNC_MIN_SIZE) {
+            if (mRequestedGeneration != mGeometryGeneration) {
+                mRequestedGeneration = mGeometryGeneration;
+                mGeometryDirty = false;
+                mGeometryWorker.request(mGeometryGeneration, mSource, updateLayout());
+            }
+            final CurveGeometry front = mGeometryWorker.swap(mGeometry);
+            if (front != mGeometry) {
+                addGeometryMetrics(front);
+                mGeometry = front;
+            }
+            return;
+        }
+        if (mGeometry.mGeneration != mGeometryGeneration) {
+            mGeometry.setLayout(updateLayout());
+            mGeometry.update(mSource, mGeometryDirty);
+            addGeometryMetrics(mGeometry);
+            mGeometry.mGeneration = mGeometryGeneration;
+            mGeometryDirty = false;
+        }
+    }
+
+    /***
+     * 附加曲线总是在UI线程计算
+     */
+    private void updateSeriesGeometry() {
+        for (int i = 0, n = mSeries.size(); i < n; i++) {
+            final ChartSeries series = mSeries.get(i);
+            final CurveGeometry geometry = series.mGeometry;
+            if (geometry.mGeneration != mGeometryGeneration) {
+                geometry.setLayout(updateLayout());
+                geometry.update(series.mData, series.mDataDirty);
+                addGeometryMetrics(geometry);
+                geometry.mGeneration = mGeometryGeneration;
+                series.mDataDirty = false;
+            }
+        }
+    }
+
+    private CurveGeometry.Layout updateLayout() {
+        final boolean fitAll = mFitAll;
+        clampViewport();
+        if (fitAll != mFitAll && mAxisFollowViewport) {
+            //数据变少后恢复显示全部节点
+            updateAxisRange();
+        }
+        final CurveGeometry.Layout layout = mLayout;
+        layout.mLeft = 2 * mBorder;
+        layout.mTop = mBorder;
+        layout.mWidth = getPlotWidth();
+        layout.mHeight = getMeasuredHeight() - 2 * mBorder;
+        layout.mMinY = mMinY;
+        layout.mMaxY = mMaxY;
+        layout.mDownsampleMode = mDownsampleMode;
+        if (mFitAll && !mSeries.isEmpty()) {
+            //有附加曲线时按最长的曲线确定节点间距，所有曲线的x坐标对齐
+            final int nodeCount = getNodeCount();
+            layout.mFitAll = false;
+            layout.mViewStart = 0;
+            layout.mViewEnd = nodeCount > 1 ? nodeCount - 1 : (2);
+        } else {
+            layout.mFitAll = mFitAll;
+            layout.mViewStart = mViewportStart;
+            layout.mViewEnd = mViewportEnd;
+        }
+        layout.mTimeAxis = isTimeAxis();
+        if (layout.mTimeAxis && !layout.mFitAll) {
+            if (mFitAll) {
+                //所有曲线的时间范围
+                long start = mSource.getTime(0);
+                long end = mSource.getTime(mSource.size() - 1);
+                for (int i = 0, n = mSeries.size(); i < n; i++) {
+                    final SeriesData data = mSeries.get(i).mData;
+                    if (data.size() > 0) {
+                        start = Math.min(start, data.getTime(0));
+                        end = Math.max(end, data.getTime(data.size() - 1));
+                    }
+                }
+                layout.mStartTime = start;
+                layout.mEndTime = end;
+            } else {
+                layout.mStartTime = timeAt(mViewportStart);
+                layout.mEndTime = timeAt(mViewportEnd);
+            }
+        }
+        return layout;
+    }
+
+    /***
+     * 是否按时间轴绘制，主曲线没有时间戳时仍按节点位置绘制
+     */
+    private boolean isTimeAxis() {
+        return mTimeAxisEnabled && mSource.size() > 0 && mSource.hasTimes();
+    }
+
+    /***
+     * 可见区间的节点位置对应的时间，相邻节点之间线性插值
+     */
+    private long timeAt(float index) {
+        final int last = mSource.size() - 1;
+        final int i = Math.max(0, Math.min(last, (int) Math.floor(index)));
+        if (i == last) {
+            return mSource.getTime(last);
+        }
+        final long time = mSource.getTime(i);
+        return time + (long) ((mSource.getTime(i + 1) - time) * (index - i));
+    }
+
+    /***
+     * time在节点中的位置，相邻节点之间线性插值，O(log n)
+     */
+    private float indexOf(long time) {
+        final int i = CurveMath.lowerBound(mSource, time);
+        if (i == 0) {
+            return 0;
+        } else if (i == mSource.size()) {
+            return i - 1;
+        }
+        final long previous = mSource.getTime(i - 1);
+        final long next = mSource.getTime(i);
+        return next == previous ? i : i - 1 + (float) (time - previous) / (next - previous);
+    }
+
+    private float getPlotWidth() {
+        return getMeasuredWidth() - 3 * mBorder;
+    }
+
+    public boolean isAsyncGeometry() {
+        return mAsyncGeometry;
+    }
+
+    /***
+     * 开启后节点较多时在后台线程计算坐标、抽样和曲线路径，UI线程只负责绘制，
+     * 节点较少时仍然在UI线程同步计算
+     */
+    public void setAsyncGeometry(boolean asyncGeometry) {
+        if (mAsyncGeometry == asyncGeometry) {
+            return;
+        }
+        mAsyncGeometry = asyncGeometry;
+        if (asyncGeometry) {
+            if (mGeometryWorker == null) {
+                mGeometryWorker = new GeometryWorker(new Runnable() {
+                    @Override
+                    public void run() {
+                        postInvalidate();
+                    }
+                });
+            }
+        } else {
+            mGeometryWorker.cancel();
+        }
+        markGeometryDirty();
+    }
+
+    public boolean isLayerCacheEnabled() {
+        return mLayerCacheEnabled;
+    }
+
+    /***
+     * 开启后曲线、投影区域、刻度和节点缓存到离屏位图中，只在数据、布局或样式变化时重新绘制，
+     * 点击切换选中节点时只绘制高亮和标签。每层位图占用 宽 * 高 * 4 字节内存
+     */
+    public void setLayerCacheEnabled(boolean layerCacheEnabled) {
+        this.mLayerCacheEnabled = layerCacheEnabled;
+        if (!layerCacheEnabled) {
+            releaseLayers();
+        }
+        invalidate();
+    }
+
+    public boolean isFrameMetricsEnabled() {
+        return mFrameMetricsEnabled;
+    }
+
+    /***
+     * 开启后统计每帧各阶段的耗时、绘制的坐标点个数和缓存命中次数，
+     * 通过{@link #setOnFrameMetricsListener(OnFrameMetricsListener)}或{@link #getFrameMetrics(FrameMetrics)}获取
+     */
+    public void setFrameMetricsEnabled(boolean frameMetricsEnabled) {
+        this.mFrameMetricsEnabled = frameMetricsEnabled;
+        mFrameMetrics.reset();
+    }
+
+    public boolean isAllocationCountingEnabled() {
+        return mAllocationCountingEnabled;
+    }
+
+    /***
+     * 开启后{@link FrameMetrics#getAllocations()}统计每帧绘制期间UI线程分配的对象个数，只用于调试。
+     * 开启时调用Debug.startAllocCounting()，计数对整个进程生效并有额外开销，关闭时停止计数
+     */
+    public void setAllocationCountingEnabled(boolean allocationCountingEnabled) {
+        if (mAllocationCountingEnabled == allocationCountingEnabled) {
+            return;
+        }
+        mAllocationCountingEnabled = allocationCountingEnabled;
+        setAllocCounting(allocationCountingEnabled);
+    }
+
+    //Debug的分配计数自API 23起废弃且没有替代的公开API，只在显式开启统计时调用
+    @SuppressWarnings("deprecation")
+    private static void setAllocCounting(boolean enabled) {
+        if (enabled) {
+            Debug.startAllocCounting();
+        } else {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int threadAllocCount() {
+        return Debug.getThreadAllocCount();
+    }
+
+    public void setOnFrameMetricsListener(OnFrameMetricsListener listener) {
+        this.mFrameMetricsListener = listener;
+    }
+
+    /***
+     * 复制最近一帧的统计，不分配对象，可以在任意时刻采样
+     */
+    public void getFrameMetrics(FrameMetrics out) {
+        mFrameMetrics.copyTo(out);
+    }
+
+    public boolean isAnimationEnabled() {
+        return mAnimator != null;
+    }
+
+    /***
+     * 开启后数据和y轴范围变化时曲线平滑过渡：设置数据、修改和删除节点时整体变形，
+     * 追加节点时新节点从原来的最后一个节点滑入。动画按vsync刷新，每帧只插值坐标和重建路径
+     */
+    public void setAnimationEnabled(boolean animationEnabled) {
+        if (animationEnabled == (mAnimator != null)) {
+            return;
+        }
+        if (animationEnabled) {
+            mAnimator = new CurveAnimator(new Runnable() {
+                @Override
+                public void run() {
+                    invalidate();
+                }
+            });
+        } else {
+            mAnimator.cancel();
+            mAnimator = null;
+            invalidate();
+        }
+    }
+
+    public long getAnimationDuration() {
+        return mAnimator == null ? 0 : mAnimator.getDuration();
+    }
+
+    /***
+     * @param duration 动画时长，单位毫秒，需要先开启动画
+     */
+    public void setAnimationDuration(long duration) {
+        if (mAnimator == null) {
+            throw new IllegalStateException("call setAnimationEnabled(true) first");
+        }
+        mAnimator.setDuration(duration);
+    }
+
+    /***
+     * 数据或y轴范围变化前记录正在显示的曲线，作为动画起点
+     */
+    /***
+     * @return 是否记录了新的动画起点，修改数据抛出异常时传给{@link #releaseTransition(boolean)}
+     */
+    private boolean captureTransition(int transition) {
+        return mAnimator != null && mAnimator.capture(mGeometry, mSource.size(), transition, mGeometryGeneration);
+    }
+
+    /***
+     * 参数错误导致数据没有修改时放弃记录的起点，避免下一次无关的修改从过期的曲线开始动画
+     */
+    private void releaseTransition(boolean captured) {
+        if (mAnimator != null) {
+            mAnimator.release(captured);
+        }
+    }
+
+    /***
+     * 样式变化后重新绘制缓存的曲线层和节点层
+     */
+    void invalidateLayers() {
+        mStaticLayer.invalidate();
+        mNodeLayer.invalidate();
+        invalidate();
+    }
+
+    private void releaseLayers() {
+        mStaticLayer.release();
+        mNodeLayer.release();
+        mLayerGeometry = null;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttached = true;
+        acquireTag();
+        if (mIngestQueue != null) {
+            //取出从窗口移除期间写入的节点
+            mIngestScheduled.set(false);
+            if (!mIngestQueue.isEmpty() && mIngestScheduled.compareAndSet(false, true)) {
+                mChoreographer.postFrameCallback(mIngestCallback);
+            }
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mAttached = false;
+        releaseLayers();
+        releaseTag();
+        endScrub();
+        if (mIngestQueue != null) {
+            //移除期间生产者不再提交帧回调，节点留在队列中直到重新添加到窗口
+            mIngestScheduled.set(true);
+            mChoreographer.removeFrameCallback(mIngestCallback);
+        }
+        if (mAnimator != null) {
+            mAnimator.cancel();
+        }
+        if (mGeometryWorker != null) {
+            mGeometryWorker.cancel();
+            mRequestedGeneration = 0;
+        }
+    }
+
+    /***
+     * 绘制曲线
+     * @param canvas
+     */
+    public void draw(Canvas canvas) {
+        super.draw(canvas);
+        if (getNodeCount() == 0)
+            return;
+        if (mFrameMetricsEnabled) {
+            beginFrameMetrics();
+        }
+        updateGeometry();
+        mShownGeometry = mAnimator == null ? mGeometry : mAnimator.frame(mGeometry);
+        if (mLayerCacheEnabled) {
+            updateLayers();
+            mStaticLayer.draw(canvas);
+            mNodeLayer.draw(canvas);
+        } else {
+            drawStaticLayer(canvas);
+            drawNodeLayer(canvas);
+        }
+        drawOverlay(canvas);
+        if (mFrameMetricsEnabled) {
+            endFrameMetrics();
+        }
+    }
+
+    private void beginFrameMetrics() {
+        mFrameMetrics.reset();
+        mFrameMetrics.mFrameNanos = System.nanoTime();
+        if (mAllocationCountingEnabled) {
+            mFrameAllocations = threadAllocCount();
+        }
+        mFrameTextHits = mTextWidths.mHits;
+        mFrameTextMisses = mTextWidths.mMisses;
+    }
+
+    private void endFrameMetrics() {
+        final FrameMetrics metrics = mFrameMetrics;
+        metrics.mPointsProcessed = mShownGeometry.mPointsProcessed;
+        metrics.mPointsDrawn = mShownGeometry.mPointCount;
+        for (int i = 0, n = mSeries.size(); i < n; i++) {
+            final CurveGeometry geometry = mSeries.get(i).mGeometry;
+            metrics.mPointsProcessed += geometry.mPointsProcessed;
+            metrics.mPointsDrawn += geometry.mPointCount;
+        }
+        metrics.mTextCacheHits = mTextWidths.mHits - mFrameTextHits;
+        metrics.mTextCacheMisses = mTextWidths.mMisses - mFrameTextMisses;
+        if (mAllocationCountingEnabled) {
+            metrics.mAllocations = threadAllocCount() - mFrameAllocations;
+        }
+        metrics.mFrameNanos = System.nanoTime() - metrics.mFrameNanos;
+        if (mFrameMetricsListener != null) {
+            mFrameMetricsListener.onFrameMetrics(this, metrics);
+        }
+    }
+
+    /***
+     * 本帧重新计算了坐标和路径时记录耗时
+     */
+    private void addGeometryMetrics(CurveGeometry geometry) {
+        if (mFrameMetricsEnabled) {
+            mFrameMetrics.mProjectionNanos += geometry.mProjectionNanos;
+            mFrameMetrics.mPathNanos += geometry.mPathNanos;
+            mFrameMetrics.mTilesBuilt += geometry.mTilesBuilt;
+            mFrameMetrics.mTilesReused += geometry.mTilesReused;
+        }
+    }
+
+    /***
+     * 开启统计时返回当前时间，否则返回0，用于统计各阶段耗时
+     */
+    private long metricsTime() {
+        return mFrameMetricsEnabled ? System.nanoTime() : 0;
+    }
+
+    /***
+     * 坐标变化后重新绘制缓存的曲线层和节点层，只改变选中节点时直接复用位图
+     */
+    private void updateLayers() {
+        final CurveGeometry geometry = mShownGeometry;
+        if (geometry != mLayerGeometry || geometry.mGeneration != mLayerGeometryGeneration
+                || mLayerGeneration != mGeometryGeneration) {
+            //只追加了节点时只重新绘制变化的区域
+            final boolean partial = mLayerDamageValid && geometry == mLayerGeometry && geometry == mGeometry;
+            mLayerGeometry = geometry;
+            mLayerGeometryGeneration = geometry.mGeneration;
+            mLayerGeneration = mGeometryGeneration;
+            if (partial) {
+                mStaticLayer.invalidate(mLayerDamage);
+                mNodeLayer.invalidate(mLayerDamage);
+            } else {
+                mStaticLayer.invalidate();
+                mNodeLayer.invalidate();
+            }
+        }
+        mLayerDamage.setEmpty();
+        mLayerDamageValid = true;
+        int misses = 0;
+        if (mStaticLayer.isDirty()) {
+            drawStaticLayer(mStaticLayer.begin(getMeasuredWidth(), getMeasuredHeight()));
+            mStaticLayer.end();
+            misses++;
+        }
+        if (mNodeLayer.isDirty()) {
+            drawNodeLayer(mNodeLayer.begin(getMeasuredWidth(), getMeasuredHeight()));
+            mNodeLayer.end();
+            misses++;
+        }
+        if (mFrameMetricsEnabled) {
+            mFrameMetrics.mLayerCacheMisses += misses;
+            mFrameMetrics.mLayerCacheHits += 2 - misses;
+        }
+    }
+
+    /***
+     * 只显示部分节点时，可见区间外的曲线、节点和x刻度不绘制到y刻度区域
+     * @return 用于恢复画布的saveCount
+     */
+    private int clipPlot(Canvas canvas) {
+        final int saveCount = canvas.save();
+        if (!mFitAll) {
+            final float left = 2 * mBorder;
+            canvas.clipRect(left - mCircleSize, 0, left + getPlotWidth() + mCircleSize, getMeasuredHeight());
+        }
+        return saveCount;
+    }
+
+    /***
+     * 曲线层：曲线、投影区域和刻度，只在坐标或样式变化时重新绘制
+     */
+    private void drawStaticLayer(Canvas canvas) {
+        final CurveGeometry geometry = mShownGeometry;
+        //节点个数，异步计算时可能还在绘制旧数据的坐标
+        final int size = Math.min(mSource.size(), geometry.mSize);
+        //坐标点个数
+        final int count = geometry.mPointCount;
+        final float height = getMeasuredHeight() - 2 * mBorder;
+        final float[] pointX = geometry.mPointX;
+        final float[] pointY = geometry.mPointY;
+        final int[] pointIndex = geometry.mPointIndex;
+
+        final long curveStart = metricsTime();
+        final int saveCount = clipPlot(canvas);
+        //附加曲线画在主曲线下面
+        for (int i = 0, n = mSeries.size(); i < n; i++) {
+            final ChartSeries series = mSeries.get(i);
+            if (series.mGeometry.mPointCount == 0) {
+                continue;
+            }
+            series.mGeometry.drawCurve(canvas, series.mLinePaint);
+            if (series.isEnableDrawArea()) {
+                series.mGeometry.drawArea(canvas, series.mAreaPaint);
+            }
+        }
+        if (count == 0) {
+            canvas.restoreToCount(saveCount);
+            if (mFrameMetricsEnabled) {
+                mFrameMetrics.mCurveNanos += metricsTime() - curveStart;
+            }
+            return;
+        }
+
+        //绘制曲线
+        geometry.drawCurve(canvas, mLinePaint);
+
+        //绘制曲线的投影区域
+        if (mEnableDrawArea && size > 0) {
+            geometry.drawArea(canvas, mAreaPaint);
+        }
+        final long textStart = metricsTime();
+        if (mFrameMetricsEnabled) {
+            mFrameMetrics.mCurveNanos += textStart - curveStart;
+        }
+
+        //绘制x刻度
+        if (geometry.isTimeAxis()) {
+            drawTimeTicks(canvas, geometry);
+        } else if (mSource == mData) {
+            drawIndexLabels(canvas, pointX, pointIndex, count, size);
+        }
+        canvas.restoreToCount(saveCount);
+        //绘制Y刻度
+        final String top = mTopText.get(mSource.get(Math.min(pointIndex[0], size - 1)));
+        final String min = mMinText.get(mMinY);
+        canvas.drawText(top, 0, top.length(), 0, pointY[0] + mTextBaseline, mAxisTextPaint);
+        canvas.drawText(min, 0, min.length(), 0, mBorder + height + mTextBaseline, mAxisTextPaint);
+        if (mFrameMetricsEnabled) {
+            mFrameMetrics.mTextNanos += metricsTime() - textStart;
+        }
+    }
+
+    /***
+     * 绘制节点的x刻度文字，相邻文字的中心间距至少为较宽文字的{@link #LABEL_GAP}倍，
+     * 跳过的节点不测量文字宽度
+     */
+    private void drawIndexLabels(Canvas canvas, float[] pointX, int[] pointIndex, int count, int size) {
+        float lastX = -Float.MAX_VALUE;
+        float nextX = -Float.MAX_VALUE;//按上一个文字的宽度，下一个文字中心的最小位置
+        int lastWidth = 0;
+        for (int i = 0; i < count; i++) {
+            if (pointIndex[i] >= size) {
+                break;
+            }
+            if (pointX[i] < nextX) {
+                continue;
+            }
+            final String label = mData.getLabel(pointIndex[i]);
+            if (label == null) {
+                continue;
+            }
+            final int width = mTextWidths.width(mAxisTextPaint, label);
+            //比上一个文字宽时需要更大的间距
+            if (pointX[i] - lastX < Math.max(width, lastWidth) * LABEL_GAP) {
+                continue;
+            }
+            canvas.drawText(label, pointX[i] - width * 0.5f, getMeasuredHeight(), mAxisTextPaint);
+            lastX = pointX[i];
+            lastWidth = width;
+            nextX = lastX + width * LABEL_GAP;
+        }
+    }
+
+    /***
+     * 绘制可见时间区间内的时间刻度，区间不变时复用上次的刻度和文字
+     */
+    private void drawTimeTicks(Canvas canvas, CurveGeometry geometry) {
+        final TimeTicks ticks = mTimeTicks;
+        ticks.update(geometry.mOriginTime, geometry.getEndTime(), getPlotWidth(), mAxisTextPaint);
+        for (int i = 0; i < ticks.mCount; i++) {
+            final String label = ticks.mLabels[i];
+            canvas.drawText(label, geometry.timeX(ticks.mTimes[i]) - mTextWidths.width(mAxisTextPaint, label) * 0.5f,
+                    getMeasuredHeight(), mAxisTextPaint);
+        }
+    }
+
+    /***
+     * 节点层，只在坐标或节点样式变化时重新绘制
+     */
+    private void drawNodeLayer(Canvas canvas) {
+        final long start = metricsTime();
+        final int saveCount = clipPlot(canvas);
+        //每条曲线的节点只需要一到两次drawPoints，节点间距小于直径时不绘制
+        int nodes = 0;
+        for (int i = 0, n = mSeries.size(); i < n; i++) {
+            final ChartSeries series = mSeries.get(i);
+            nodes += mNodeRenderer.draw(canvas, series.mGeometry, series.getNodeStyle(), series.mNodePaint, series.mInnerNodePaint);
+        }
+        nodes += mNodeRenderer.draw(canvas, mShownGeometry, mNodeStyle, mNodePaint, mInnerNodePaint);
+        canvas.restoreToCount(saveCount);
+        if (mFrameMetricsEnabled) {
+            mFrameMetrics.mNodesDrawn += nodes;
+            mFrameMetrics.mNodeNanos += metricsTime() - start;
+        }
+    }
+
+    /***
+     * 高亮层：选中节点的高亮、标签和数值，不缓存，每次都直接绘制
+     */
+    private void drawOverlay(Canvas canvas) {
+        final CurveGeometry geometry = mShownGeometry;
+        final int size = Math.min(mSource.size(), geometry.mSize);
+        if (mSelectedNode == -1 || mSelectedNode >= size || geometry.mPointCount == 0) {
+            return;
+        }
+        final long start = metricsTime();
+        final int saveCount = clipPlot(canvas);
+        final float value = mSource.get(mSelectedNode);
+        final float nodeX = geometry.nodeX(mSource, mSelectedNode);
+        final float nodeY = geometry.nodeY(value);
+        if (mScrubbing) {
+            canvas.drawLine(nodeX, mBorder, nodeX, getMeasuredHeight() - mBorder, mCrosshairPaint);
+        }
+        //绘制选中节点高亮
+        canvas.drawCircle(nodeX, nodeY, mSelectedCircleSize / 2, mHighlightPaint);
+        //绘制高亮tag
+        if (mEnableShowTag) {
+            if (mTagBitmap != null) {
+                canvas.drawBitmap(isTagBelow(nodeY) ? mTagBitmapReverse : mTagBitmap,
+                        nodeX - mTagBitmap.getWidth() / 2, tagTop(nodeY), null);
+            }
+            final String text = mSelectedText.get(value);
+            canvas.drawText(text, nodeX - mTextWidths.width(mTextPaint, text) * 0.5f, selectedTextBaseline(nodeY), mTextPaint);
+        }
+        canvas.restoreToCount(saveCount);
+        if (mFrameMetricsEnabled) {
+            mFrameMetrics.mOverlayNanos += metricsTime() - start;
+        }
+    }
 
-    @IntDef({NODE_STYLE_CIRCLE, NODE_STYLE_RING})
-    @Retention(RetentionPolicy.SOURCE)
-    @interface NodeStyle {
+    /***
+     * 节点上方放不下标签时，标签翻转后放在节点下方
+     */
+    private boolean isTagBelow(float nodeY) {
+        return mTagBitmap != null && nodeY - mTagBitmap.getHeight() * 1.5f <= 0;
     }
 
-    public SmoothLineChartView(Context context) {
-        this(context, null, 0);
+    private float tagTop(float nodeY) {
+        return isTagBelow(nodeY) ? nodeY + mTagBitmap.getHeight() * 0.5f : nodeY - mTagBitmap.getHeight() * 1.5f;
     }
 
-    public SmoothLineChartView(Context context, AttributeSet attrs) {
-        this(context, attrs, 0);
+    /***
+     * 选中节点数值的基线，在标签内
+     */
+    private float selectedTextBaseline(float nodeY) {
+        final float yOffset;
+        if (mTagBitmap == null) {
+            yOffset = mCircleSize * 2;
+        } else if (isTagBelow(nodeY)) {
+            yOffset = mTagBitmap.getHeight() + mTextOffset;
+        } else {
+            yOffset = mTagBitmap.getHeight() * -1 - mTextOffset;
+        }
+        return nodeY + mTextBaseline + yOffset;
     }
 
-    public SmoothLineChartView(Context context, AttributeSet attrs, int defStyle) {
-        super(context, attrs, defStyle);
-        mContext = context;
-        float scale = context.getResources().getDisplayMetrics().density;
-        mCircleSize = scale * CIRCLE_SIZE;
-        mStrokeSize = scale * STROKE_SIZE;
-        mSelectedCircleSize = scale * SELECTED_CIRCLE_SIZE;
-        mEnableDrawArea = true;
-        mEnableShowTag = true;
-        mDrawAreaColor = (CHART_COLOR & 0xFFFFFF) | 0x10000000;
-        mLineColor = CHART_COLOR;
-        mCircleColor = CHART_COLOR;
-        mInnerCircleColor = Color.WHITE;
-        mTextColor = Color.WHITE;
-        mTextSize = DensityUtils.sp2px(context, 12);
-        mTextOffset = TEXT_POSITION_OFFSET;
-        mNodeStyle = NODE_STYLE_CIRCLE;
-        mPaint = new Paint();
-        mPaint.setAntiAlias(true);
-        mPath = new Path();
-        mBorder = 2 * mCircleSize;
+    /***
+     * 切换选中节点时只刷新原来和新选中节点的高亮、标签和数值
+     */
+    private void invalidateSelection(int previous) {
+        final Rect damage = mDamage;
+        damage.setEmpty();
+        if (selectionBounds(previous, damage) && selectionBounds(mSelectedNode, damage)) {
+            invalidate(damage);
+        } else {
+            invalidate();
+        }
     }
 
     /***
-     * 设置路径节点
+     * 选中节点的高亮圆、标签和数值的范围并入out，与drawOverlay的位置一致
+     * @return 坐标还没有更新或正在播放动画时返回false
      */
-    public void setData(List<Float> yValues, List<String> xValue) {
-        if (yValues == null || xValue == null) {
-            throw new IllegalArgumentException("valuse can not be null");
-        } else if (yValues.size() != xValue.size()) {
-            throw new IllegalArgumentException("yValues's size should be same as xValue's");
+    private boolean selectionBounds(int node, Rect out) {
+        if (node == -1) {
+            return true;
         }
-        mValues = yValues;
-        mPoints.clear();
-        if (yValues != null && yValues.size() > 0) {
-            mMaxY = mCustomAxisMax ? mMaxY : yValues.get(0);
-            mMinY = mCustomAxisMin ? mMinY : yValues.get(0);
-            for (float y : yValues) {
-                if (y > mMaxY) {
-                    mMaxY = y;
-                }
-                if (y < mMinY) {
-                    mMinY = y;
-                }
+        final CurveGeometry geometry = mShownGeometry;
+        if (geometry == null || geometry != mGeometry || mGeometryDirty || geometry.mGeneration != mGeometryGeneration
+                || (mAnimator != null && mAnimator.isRunning()) || node >= Math.min(mSource.size(), geometry.mSize)) {
+            return false;
+        }
+        final float value = mSource.get(node);
+        final float nodeX = geometry.nodeX(mSource, node);
+        final float nodeY = geometry.nodeY(value);
+        final float radius = (mSelectedCircleSize + mStrokeSize) / 2;
+        float left = nodeX - radius;
+        float top = nodeY - radius;
+        float right = nodeX + radius;
+        float bottom = nodeY + radius;
+        if (mScrubbing) {
+            top = Math.min(top, mBorder);
+            bottom = Math.max(bottom, getMeasuredHeight() - mBorder);
+        }
+        if (mEnableShowTag) {
+            if (mTagBitmap != null) {
+                final float tagTop = tagTop(nodeY);
+                left = Math.min(left, nodeX - mTagBitmap.getWidth() / 2);
+                right = Math.max(right, nodeX + mTagBitmap.getWidth() / 2 + 1);
+                top = Math.min(top, tagTop);
+                bottom = Math.max(bottom, tagTop + mTagBitmap.getHeight());
             }
+            final String text = mSelectedText.get(value);
+            final float halfWidth = mTextWidths.width(mTextPaint, text) * 0.5f;
+            final float baseline = selectedTextBaseline(nodeY);
+            left = Math.min(left, nodeX - halfWidth);
+            right = Math.max(right, nodeX + halfWidth);
+            top = Math.min(top, baseline + mFontMetrics.top);
+            bottom = Math.max(bottom, baseline + mFontMetrics.bottom);
         }
-        this.mXData = xValue;
-        invalidate();
+        //抗锯齿边缘和文字左右的空白
+        out.union((int) Math.floor(left) - 2, (int) Math.floor(top) - 2, (int) Math.ceil(right) + 2, (int) Math.ceil(bottom) + 2);
+        return true;
     }
 
-    public void add(float value, String xString) {
-        mValues.add(value);
-        if (value > mMaxY) {
-            if (!mCustomAxisMax)
-                mMaxY = value;
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mViewportEnabled) {
+            //点击选中节点由mGestureDetector的onSingleTapUp处理，拖动和缩放时不会选中
+            mScaleDetector.onTouchEvent(event);
+            mGestureDetector.onTouchEvent(event);
+            return true;
         }
-        if (value < mMinY) {
-            if (!mCustomAxisMin)
-                mMinY = value;
+        if (mScrubEnabled) {
+            onScrubTouchEvent(event);
+            return true;
         }
-        this.mXData.add(xString);
-        invalidate();
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                break;
+            case MotionEvent.ACTION_MOVE:
+                break;
+            case MotionEvent.ACTION_UP:
+                selectNode(event.getX(), event.getY());
+                break;
+        }
+        return true;
     }
 
-    public void remove(int position) {
-        mValues.remove(position);
-        if (mSelectedNode == position) {
-            mSelectedNode = -1;
-        }
-        if (mValues != null && mValues.size() > 0) {
-            mMaxY = mCustomAxisMax ? mMaxY : mValues.get(0);
-            mMinY = mCustomAxisMin ? mMinY : mValues.get(0);
-            for (float y : mValues) {
-                if (y > mMaxY) {
-                    if (!mCustomAxisMax)
-                        mMaxY = y;
+    /***
+     * 拖动查看：按下和移动时只记录最新位置，下一帧再查找节点，
+     * 触摸采样率高于刷新率时一帧内的多个事件和批量事件中的历史采样合并为一次查找
+     */
+    private void onScrubTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mScrubbing = true;
+                final ViewParent parent = getParent();
+                if (parent != null) {
+                    parent.requestDisallowInterceptTouchEvent(true);
                 }
-                if (y < mMinY) {
-                    if (!mCustomAxisMin)
-                        mMinY = y;
+                if (mSelectedNode != -1) {
+                    //显示当前选中节点的准线
+                    invalidateSelection(-1);
                 }
-            }
+                scheduleScrub(event.getX());
+                break;
+            case MotionEvent.ACTION_MOVE:
+                //历史采样都早于当前位置，准线只需要跟随最新的位置
+                scheduleScrub(event.getX());
+                break;
+            case MotionEvent.ACTION_UP:
+                //抬起时立即按最后的位置查找，保证回调的是最终选中的节点
+                mScrubX = event.getX();
+                applyScrub();
+                endScrub();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                endScrub();
+                break;
         }
+    }
 
+    private void scheduleScrub(float x) {
+        mScrubX = x;
+        if (!mScrubScheduled) {
+            mScrubScheduled = true;
+            //触摸事件在UI线程，这里才取Choreographer，离屏视图在没有Looper的线程开启也不会抛异常
+            if (mChoreographer == null) {
+                mChoreographer = Choreographer.getInstance();
+            }
+            mChoreographer.postFrameCallback(mScrubCallback);
+        }
     }
 
-    public void removeAll() {
-        mValues.clear();
-        mMaxY = 0;
-        mMinY = 0;
+    /***
+     * 选中x方向最近的节点，节点变化时回调一次并只刷新新旧节点的高亮区域
+     */
+    private void applyScrub() {
+        final int node = findNearestNodeX(mScrubX);
+        if (node == -1 || node == mSelectedNode) {
+            return;
+        }
+        final int previous = mSelectedNode;
+        mSelectedNode = node;
+        if (mChartClickListener != null) {
+            mChartClickListener.onClick(node, mSource.get(node));
+        }
+        invalidateSelection(previous);
     }
 
     /***
-     * 绘制曲线
-     * @param canvas
+     * 结束拖动查看，保留选中节点，移除准线
      */
-    public void draw(Canvas canvas) {
-        super.draw(canvas);
-        if (mValues == null || mValues.size() == 0)
+    private void endScrub() {
+        if (mScrubScheduled) {
+            mScrubScheduled = false;
+            mChoreographer.removeFrameCallback(mScrubCallback);
+        }
+        if (!mScrubbing) {
             return;
+        }
+        //按显示准线时的范围刷新
+        final Rect damage = mDamage;
+        damage.setEmpty();
+        final boolean partial = selectionBounds(mSelectedNode, damage);
+        mScrubbing = false;
+        if (partial) {
+            invalidate(damage);
+        } else {
+            invalidate();
+        }
+    }
 
-        //节点个数
-        int size = mValues.size();
-        //曲线实际绘制区域的宽和高，避免绘制到区域外
-        final float height = getMeasuredHeight() - 2 * mBorder;
-        final float width = getMeasuredWidth() - 3 * mBorder;
+    private void selectNode(float x, float y) {
+        final int previous = mSelectedNode;
+        mSelectedNode = checkClicked(x, y);
+        if (mSelectedNode != -1) {
+            if (mChartClickListener != null) {
+                mChartClickListener.onClick(mSelectedNode, mSource.get(mSelectedNode));
+            }
+            if (mSelectedNode != previous) {
+                invalidateSelection(previous);
+            }
+        }
+    }
 
-        final float dX = mValues.size() > 1 ? mValues.size() - 1 : (2);
-        final float dY = (mMaxY - mMinY) > 0 ? (mMaxY - mMinY) : (2);
+    @Override
+    public void computeScroll() {
+        super.computeScroll();
+        if (mScroller != null && mScroller.computeScrollOffset()) {
+            final float span = mViewportEnd - mViewportStart;
+            final float start = mScroller.getCurrX() / mFlingStep;
+            setViewportInternal(start, start + span);
+            postInvalidateOnAnimation();
+        }
+    }
 
-        mPath.reset();
-        mPaint.setStrokeWidth(mStrokeSize);
+    public boolean isScrubEnabled() {
+        return mScrubEnabled;
+    }
 
-        mPoints.clear();
-        //计算点的坐标,并保存点的集合
-        for (int i = 0; i < size; i++) {
-            float x = 2 * mBorder + i * width / dX;
-            float y = mBorder + height - (mValues.get(i) - mMinY) * height / dY;
-            mPoints.add(new PointF(x, y));
+    /***
+     * 开启后按住曲线左右拖动查看节点，显示竖直准线，选中节点变化时回调OnChartClickListener，
+     * 每帧最多回调一次。开启可见区间手势时单指拖动用于平移，不进入拖动查看
+     */
+    public void setScrubEnabled(boolean scrubEnabled) {
+        this.mScrubEnabled = scrubEnabled;
+        if (!scrubEnabled) {
+            endScrub();
         }
+    }
+
+    public boolean isViewportEnabled() {
+        return mViewportEnabled;
+    }
 
-        //计算曲线路径
-        float lX = 0, lY = 0;
-        mPath.moveTo(mPoints.get(0).x, mPoints.get(0).y);
-        for (int i = 1; i < size; i++) {
-            PointF current = mPoints.get(i);//当前点
+    /***
+     * 开启后可以单指拖动、惯性滑动和双指缩放曲线，只计算和绘制可见区间内的节点
+     */
+    public void setViewportEnabled(boolean viewportEnabled) {
+        this.mViewportEnabled = viewportEnabled;
+        if (viewportEnabled && mGestureDetector == null) {
+            final ViewportGestureListener listener = new ViewportGestureListener();
+            mGestureDetector = new GestureDetector(mContext, listener);
+            mGestureDetector.setIsLongpressEnabled(false);
+            mScaleDetector = new ScaleGestureDetector(mContext, listener);
+            mScroller = new OverScroller(mContext);
+        }
+    }
 
-            //计算第一个控制点
-            PointF pre = mPoints.get(i - 1); //上一个节点
-            float x1 = pre.x + lX;
-            float y1 = pre.y + lY;
+    /***
+     * 设置可见的节点区间，超出数据范围时会被修正，区间包含全部节点时恢复显示全部节点
+     * @param start 可见区域左边界对应的节点位置，可以是小数
+     * @param end 可见区域右边界对应的节点位置
+     */
+    public void setViewport(float start, float end) {
+        if (end <= start) {
+            throw new IllegalArgumentException("end must be larger than start");
+        }
+        if (mScroller != null) {
+            mScroller.forceFinished(true);
+        }
+        setViewportInternal(start, end);
+    }
 
-            //计算第二个控制点
-            PointF next = mPoints.get(i + 1 < size ? i + 1 : i);//下一个节点
-            lX = (next.x - pre.x) / 2 * SMOOTHNESS;        // (lX,lY) is the slope of the reference line
-            lY = (next.y - pre.y) / 2 * SMOOTHNESS;
-            float x2 = current.x - lX;
-            float y2 = current.y - lY;
+    /***
+     * 恢复显示全部节点
+     */
+    public void resetViewport() {
+        if (mScroller != null) {
+            mScroller.forceFinished(true);
+        }
+        if (!mFitAll) {
+            mFitAll = true;
+            if (mAxisFollowViewport) {
+                updateAxisRange();
+            }
+            markGeometryDirty();
+        }
+    }
 
-            // add line
-            mPath.cubicTo(x1, y1, x2, y2, current.x, current.y);
+    /***
+     * 按时间设置可见区间，需要主曲线带时间戳
+     */
+    public void setTimeRange(long start, long end) {
+        if (end <= start) {
+            throw new IllegalArgumentException("end must be larger than start");
         }
+        if (!mSource.hasTimes()) {
+            throw new IllegalStateException("data has no timestamps");
+        }
+        setViewport(indexOf(start), indexOf(end));
+    }
 
-        //绘制曲线
-        mPaint.setColor(mLineColor);
-        mPaint.setStyle(Paint.Style.STROKE);
-        canvas.drawPath(mPath, mPaint);
+    public boolean isAxisFollowViewport() {
+        return mAxisFollowViewport;
+    }
 
-        //绘制曲线的投影区域
-        if (mEnableDrawArea && size > 0) {
-            mPaint.setStyle(Paint.Style.FILL);
-            mPaint.setColor(mDrawAreaColor);
-            mPath.lineTo(mPoints.get(size - 1).x, height + mBorder);
-            mPath.lineTo(mPoints.get(0).x, height + mBorder);
-            mPath.close();
-            canvas.drawPath(mPath, mPaint);
+    /***
+     * 开启后非自定义的y轴范围只包含可见区间内的节点，平移和缩放时实时调整，
+     * 每次通过线段树查询可见区间的最大最小值，O(log n)，不需要遍历可见节点
+     */
+    public void setAxisFollowViewport(boolean axisFollowViewport) {
+        if (mAxisFollowViewport != axisFollowViewport) {
+            mAxisFollowViewport = axisFollowViewport;
+            updateAxisRange();
+            markGeometryDirty();
         }
-        //绘制选中节点高亮
-        if (mSelectedNode != -1 && mSelectedNode < size) {
-            mPaint.setColor((mCircleColor & 0xFFFFFF) | 0x30000000);
-            mPaint.setStyle(Paint.Style.FILL_AND_STROKE);
-            final PointF point = mPoints.get(mSelectedNode);
-            canvas.drawCircle(point.x, point.y, mSelectedCircleSize / 2, mPaint);
-        }
-        //绘制节点
-        mPaint.setColor(mCircleColor);
-        mPaint.setStyle(Paint.Style.FILL_AND_STROKE);
-        for (PointF point : mPoints) {
-            canvas.drawCircle(point.x, point.y, mCircleSize / 2, mPaint);
-        }
-        //绘制圆环内圆填充
-        if (mNodeStyle == NODE_STYLE_RING) {
-            mPaint.setStyle(Paint.Style.FILL);
-            mPaint.setColor(mInnerCircleColor);
-            for (PointF point : mPoints) {
-                canvas.drawCircle(point.x, point.y, (mCircleSize - mStrokeSize) / 2, mPaint);
+    }
+
+    public float getViewportStart() {
+        return mFitAll ? 0 : mViewportStart;
+    }
+
+    public float getViewportEnd() {
+        return mFitAll ? Math.max(0, getNodeCount() - 1) : mViewportEnd;
+    }
+
+    private void setViewportInternal(float start, float end) {
+        final boolean fitAll = mFitAll;
+        final float oldStart = mViewportStart;
+        final float oldEnd = mViewportEnd;
+        mFitAll = false;
+        mViewportStart = start;
+        mViewportEnd = end;
+        clampViewport();
+        if (fitAll != mFitAll || oldStart != mViewportStart || oldEnd != mViewportEnd) {
+            if (mAxisFollowViewport) {
+                updateAxisRange();
             }
+            markGeometryDirty();
         }
-        //绘制高亮tag
-        if (mEnableShowTag && mSelectedNode != -1 && mSelectedNode < size) {
-            final PointF point = mPoints.get(mSelectedNode);
-            final float tagOffsetY = point.y - mTagBitmap.getHeight() * 1.5f;
-            if (mTagBitmap != null) {
-                if (tagOffsetY > 0) {
-                    canvas.drawBitmap(mTagBitmap, point.x - mTagBitmap.getWidth() / 2, tagOffsetY, mPaint);
-                } else {
-                    canvas.drawBitmap(mTagBitmapReverse, point.x - mTagBitmap.getWidth() / 2, point.y + mTagBitmap.getHeight() * 0.5f, mPaint);
-                }
+    }
+
+    /***
+     * 把可见区间限制在数据范围内，数据变少或缩小到包含全部节点时显示全部节点
+     */
+    private void clampViewport() {
+        if (mFitAll) {
+            return;
+        }
+        final float last = getNodeCount() - 1;
+        float span = Math.max(MIN_VIEWPORT_SPAN, mViewportEnd - mViewportStart);
+        if (span >= last) {
+            mFitAll = true;
+            return;
+        }
+        final float start = Math.max(0, Math.min(mViewportStart, last - span));
+        mViewportStart = start;
+        mViewportEnd = start + span;
+    }
+
+    /***
+     * 拖动、惯性滑动和双指缩放可见区间
+     */
+    private class ViewportGestureListener extends GestureDetector.SimpleOnGestureListener
+            implements ScaleGestureDetector.OnScaleGestureListener {
+
+        @Override
+        public boolean onDown(MotionEvent e) {
+            mScroller.forceFinished(true);
+            return true;
+        }
+
+        @Override
+        public boolean onSingleTapUp(MotionEvent e) {
+            selectNode(e.getX(), e.getY());
+            return true;
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+            if (mFitAll || mScaleDetector.isInProgress()) {
+                return false;
             }
-            mPaint.setTextSize(DensityUtils.sp2px(mContext, mTextSize));
-            mPaint.setStrokeWidth(0);
-            mPaint.setColor(mTextColor);
-            final String text = mValues.get(mSelectedNode) + "";
-            final Rect textRect = new Rect();
-            mPaint.getTextBounds(text, 0, text.length(), textRect);
-            Paint.FontMetricsInt fontMetrics = mPaint.getFontMetricsInt();
-            float baseline = (fontMetrics.top - fontMetrics.bottom) / 2 - fontMetrics.top;
-            float yOffset = 0;
-            if (tagOffsetY <= 0) {
-                yOffset = mTagBitmap == null ? mCircleSize * 2 : mTagBitmap.getHeight() + mTextOffset;
-            } else {
-                yOffset = mTagBitmap == null ? mCircleSize * 2 : mTagBitmap.getHeight() * -1 - mTextOffset;
+            final float span = mViewportEnd - mViewportStart;
+            final float start = mViewportStart + distanceX * span / getPlotWidth();
+            setViewportInternal(start, start + span);
+            final ViewParent parent = getParent();
+            if (parent != null) {
+                parent.requestDisallowInterceptTouchEvent(true);
             }
-            canvas.drawText(text, point.x - textRect.width() * 0.5f, point.y + baseline + yOffset, mPaint);
+            return true;
         }
 
-        //绘制x刻度
-        for (int i = 0; i < mPoints.size(); i++) {
-            mPaint.setTextSize(DensityUtils.sp2px(mContext, mTextSize));
-            mPaint.setStrokeWidth(0);
-            mPaint.setColor(Color.RED);
-            final Rect textRect = new Rect();
-            mPaint.getTextBounds(mXData.get(i), 0, mXData.get(i).length(), textRect);
-            canvas.drawText(mXData.get(i), 0, 4, mPoints.get(i).x - textRect.width() * 0.5f, getMeasuredHeight(), mPaint);
+        @Override
+        public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+            if (mFitAll) {
+                return false;
+            }
+            final float span = mViewportEnd - mViewportStart;
+            mFlingStep = getPlotWidth() / span;
+            final int maxX = (int) ((getNodeCount() - 1 - span) * mFlingStep);
+            mScroller.fling((int) (mViewportStart * mFlingStep), 0, (int) -velocityX, 0, 0, maxX, 0, 0);
+            postInvalidateOnAnimation();
+            return true;
         }
-        //绘制Y刻度
-        Paint.FontMetricsInt fontMetrics = mPaint.getFontMetricsInt();
-        float baseline = (fontMetrics.top - fontMetrics.bottom) / 2 - fontMetrics.top;
-        final String top = mValues.get(0) + "";
-        final String min = "" + mMinY;
-        canvas.drawText(top, 0, top.length(), 0, mPoints.get(0).y + baseline, mPaint);
-        canvas.drawText(min, 0, min.length(), 0, mBorder + height + baseline, mPaint);
-    }
 
-    @Override
-    public boolean onTouchEvent(MotionEvent event) {
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                break;
-            case MotionEvent.ACTION_MOVE:
-                break;
-            case MotionEvent.ACTION_UP:
-                mSelectedNode = checkClicked(event.getX(), event.getY());
-                if (mSelectedNode != -1) {
-                    if (mChartClickListener != null) {
-                        mChartClickListener.onClick(mSelectedNode, mValues.get(mSelectedNode));
-                    }
-                    invalidate();
-                }
-                break;
+        @Override
+        public boolean onScaleBegin(ScaleGestureDetector detector) {
+            mScroller.forceFinished(true);
+            return getNodeCount() > 1;
+        }
+
+        @Override
+        public boolean onScale(ScaleGestureDetector detector) {
+            final float start = getViewportStart();
+            final float span = getViewportEnd() - start;
+            //以双指中心为不动点缩放
+            final float ratio = (detector.getFocusX() - 2 * mBorder) / getPlotWidth();
+            final float focus = start + ratio * span;
+            final float newSpan = span / detector.getScaleFactor();
+            final float newStart = focus - ratio * newSpan;
+            setViewportInternal(newStart, newStart + newSpan);
+            return true;
+        }
+
+        @Override
+        public void onScaleEnd(ScaleGestureDetector detector) {
         }
-        return true;
     }
 
     private int checkClicked(float x, float y) {
-        final int size = mPoints.size();
-        for (int i = 0; i < size; i++) {
-            final PointF p = mPoints.get(i);
-            if (x >= p.x - TOUCH_MIN_DISTANCE && x < p.x + TOUCH_MIN_DISTANCE
-                    && y >= p.y - TOUCH_MIN_DISTANCE && y < p.y + TOUCH_MIN_DISTANCE) {
-                return i;
-            }
+        return findNearestNode(x, y, TOUCH_MIN_DISTANCE);
+    }
+
+    /***
+     * 查找距离触摸点最近的节点，只查找已绘制的节点，O(log n)
+     * @param radiusPx x和y方向允许的最大距离，单位像素
+     * @return 节点位置，没有找到返回-1
+     */
+    public int findNearestNode(float x, float y, float radiusPx) {
+        //按屏幕上绘制的坐标查找，动画进行中时为插值后的坐标
+        final CurveGeometry geometry = mShownGeometry;
+        final int point = geometry.findNearest(x, y, radiusPx);
+        if (point == -1) {
+            return -1;
+        }
+        //异步计算时绘制的可能是旧数据
+        final int index = geometry.mPointIndex[point];
+        return index < mSource.size() ? index : -1;
+    }
+
+    /***
+     * 查找x方向距离最近的已绘制节点，不限制距离，O(log n)
+     * @return 节点位置，没有节点时返回-1
+     */
+    public int findNearestNodeX(float x) {
+        final CurveGeometry geometry = mShownGeometry;
+        final int count = geometry.mPointCount;
+        if (count == 0) {
+            return -1;
         }
-        return -1;
+        int point = geometry.lowerBound(x);
+        if (point == count || (point > 0 && x - geometry.mPointX[point - 1] < geometry.mPointX[point] - x)) {
+            point--;
+        }
+        //异步计算时绘制的可能是旧数据
+        final int index = geometry.mPointIndex[point];
+        return index < mSource.size() ? index : -1;
     }
 
     public float getMinY() {
@@ -354,8 +1886,9 @@ public class SmoothLineChartView extends View {
         if (mCustomAxisMax && mMaxY < mMinY) {
             throw new IllegalArgumentException("mMinY must be smaller than mMaxY");
         }
+        captureTransition(CurveAnimator.TRANSITION_MORPH);
         this.mMinY = mMinY;
-        invalidate();
+        markGeometryDirty();
     }
 
     public float getMaxY() {
@@ -367,8 +1900,9 @@ public class SmoothLineChartView extends View {
         if (mCustomAxisMin && mMaxY < mMinY) {
             throw new IllegalArgumentException("mMinY must be smaller than mMaxY");
         }
+        captureTransition(CurveAnimator.TRANSITION_MORPH);
         this.mMaxY = mMaxY;
-        invalidate();
+        markGeometryDirty();
     }
 
     public boolean isCustomAxisMin() {
@@ -376,8 +1910,10 @@ public class SmoothLineChartView extends View {
     }
 
     public void setCustomAxisMin(boolean mCustomAxisMin) {
+        captureTransition(CurveAnimator.TRANSITION_MORPH);
         this.mCustomAxisMin = mCustomAxisMin;
-        invalidate();
+        updateAxisRange();
+        markGeometryDirty();
     }
 
     public boolean isCustomAxisMax() {
@@ -385,8 +1921,10 @@ public class SmoothLineChartView extends View {
     }
 
     public void setCustomAxisMax(boolean mCustomAxisMax) {
+        captureTransition(CurveAnimator.TRANSITION_MORPH);
         this.mCustomAxisMax = mCustomAxisMax;
-        invalidate();
+        updateAxisRange();
+        markGeometryDirty();
     }
 
     public boolean isEnableDrawArea() {
@@ -395,7 +1933,7 @@ public class SmoothLineChartView extends View {
 
     public void enableDrawArea(boolean mEnableDrawArea) {
         this.mEnableDrawArea = mEnableDrawArea;
-        invalidate();
+        invalidateLayers();
     }
 
     public int getDrawAreaColor() {
@@ -404,6 +1942,8 @@ public class SmoothLineChartView extends View {
 
     public void setDrawAreaColor(int mDrawAreaColor) {
         this.mDrawAreaColor = mDrawAreaColor;
+        mAreaPaint.setColor(mDrawAreaColor);
+        invalidateLayers();
     }
 
     public int getLineColor() {
@@ -412,6 +1952,8 @@ public class SmoothLineChartView extends View {
 
     public void setLineColor(int mLineColor) {
         this.mLineColor = mLineColor;
+        mLinePaint.setColor(mLineColor);
+        invalidateLayers();
     }
 
     public int getCircleColor() {
@@ -420,6 +1962,10 @@ public class SmoothLineChartView extends View {
 
     public void setCircleColor(int mCircleColor) {
         this.mCircleColor = mCircleColor;
+        mNodePaint.setColor(mCircleColor);
+        mHighlightPaint.setColor((mCircleColor & 0xFFFFFF) | 0x30000000);
+        mCrosshairPaint.setColor((mCircleColor & 0xFFFFFF) | 0x80000000);
+        invalidateLayers();
     }
 
     public int getInnerCircleColor() {
@@ -428,6 +1974,8 @@ public class SmoothLineChartView extends View {
 
     public void setInnerCircleColor(int mInnerCircleColor) {
         this.mInnerCircleColor = mInnerCircleColor;
+        mInnerNodePaint.setColor(mInnerCircleColor);
+        invalidateLayers();
     }
 
     public int getNodeStyle() {
@@ -436,7 +1984,37 @@ public class SmoothLineChartView extends View {
 
     public void setNodeStyle(@NodeStyle int mNodeStyle) {
         this.mNodeStyle = mNodeStyle;
-        invalidate();
+        invalidateLayers();
+    }
+
+    public boolean isTimeAxisEnabled() {
+        return mTimeAxisEnabled;
+    }
+
+    /***
+     * 开启后按节点时间戳计算x坐标，支持不均匀的时间间隔，并按宽度自动生成时间刻度，
+     * 刻度文字的工作量只与刻度个数有关。节点需要通过{@link #push(float, long)}或
+     * {@link #setData(float[], long[], int, int)}设置时间戳
+     */
+    public void setTimeAxisEnabled(boolean timeAxisEnabled) {
+        if (mTimeAxisEnabled != timeAxisEnabled) {
+            this.mTimeAxisEnabled = timeAxisEnabled;
+            markGeometryDirty();
+        }
+    }
+
+    public int getDownsampleMode() {
+        return mDownsampleMode;
+    }
+
+    /***
+     * 设置节点数超过曲线宽度像素数2倍时的抽样方式
+     * @param downsampleMode {@link #DOWNSAMPLE_LTTB}保持曲线形状，{@link #DOWNSAMPLE_MIN_MAX}保留每列的峰值，
+     *                       {@link #DOWNSAMPLE_NONE}不抽样
+     */
+    public void setDownsampleMode(@DownsampleMode int downsampleMode) {
+        this.mDownsampleMode = downsampleMode;
+        markGeometryDirty();
     }
 
     public OnChartClickListener getChartClickListener() {
@@ -447,30 +2025,83 @@ public class SmoothLineChartView extends View {
         this.mChartClickListener = mChartClickListener;
     }
 
+    /***
+     * 通过资源id设置时，第一次获取才创建包装共用位图的Drawable
+     */
     public Drawable getTagDrawable() {
+        if (mTagDrawable == null && mTagBitmap != null) {
+            mTagDrawable = new BitmapDrawable(mContext.getResources(), mTagBitmap);
+        }
         return mTagDrawable;
     }
 
+    /***
+     * 设置标签图片，同一张位图的原图和旋转后的图片在所有图表之间共用
+     */
     public void setTagDrawable(Drawable drawable) {
         this.mTagDrawable = drawable;
-        mTagBitmap = Bitmap.createBitmap(((BitmapDrawable) mTagDrawable).getBitmap());
-        Matrix matrix = new Matrix();
-        matrix.postRotate(180);
-        mTagBitmapReverse = Bitmap.createBitmap(mTagBitmap, 0, 0, mTagBitmap.getWidth(), mTagBitmap.getHeight(), matrix, true);
-        if (!mCustomBorder) {
-            mBorder = mTagBitmap.getWidth() * 0.5f;
-        }
+        setTagSource(((BitmapDrawable) drawable).getBitmap());
     }
 
+    /***
+     * 设置标签图片，同一个资源只加载一次，所有图表共用
+     */
     public void setTagDrawable(@DrawableRes int drawableSrc) {
-        this.mTagDrawable = mContext.getResources().getDrawable(drawableSrc);
-        mTagBitmap = Bitmap.createBitmap(((BitmapDrawable) mTagDrawable).getBitmap());
-        Matrix matrix = new Matrix();
-        matrix.postRotate(180);
-        mTagBitmapReverse = Bitmap.createBitmap(mTagBitmap, 0, 0, mTagBitmap.getWidth(), mTagBitmap.getHeight(), matrix, true);
+        this.mTagDrawable = null;
+        setTagSource(drawableSrc);
+    }
+
+    /***
+     * 添加到窗口时持有共用位图的引用，从窗口移除后释放；未添加到窗口时只读取位图用于计算边界和离屏绘制，
+     * 不持有引用，避免从未添加到窗口的视图使位图无法回收
+     */
+    private void setTagSource(Object source) {
+        releaseTag();
+        mTagSource = source;
+        acquireTag();
+        if (!mAttached) {
+            final Bitmap bitmap = mTagBitmap;
+            final Bitmap reverse = mTagBitmapReverse;
+            releaseTag();
+            mTagBitmap = bitmap;
+            mTagBitmapReverse = reverse;
+        }
         if (!mCustomBorder) {
             mBorder = mTagBitmap.getWidth() * 0.5f;
+            markGeometryDirty();
+        } else {
+            invalidate();
+        }
+    }
+
+    /***
+     * 从共用缓存获取标签位图，已经持有时直接返回
+     */
+    private void acquireTag() {
+        if (mTagSource == null || mTag != null) {
+            return;
+        }
+        final ChartResources resources = ChartResources.get(mContext);
+        mTag = resources.acquireTag(mContext.getResources(), mTagSource, ChartResources.ROTATION_NONE);
+        mTagReverse = resources.acquireTag(mContext.getResources(), mTagSource, ChartResources.ROTATION_180);
+        mTagBitmap = mTag.mBitmap;
+        mTagBitmapReverse = mTagReverse.mBitmap;
+    }
+
+    /***
+     * 释放共用的标签位图，没有图表使用后可能在内存紧张时被回收
+     */
+    private void releaseTag() {
+        if (mTag == null) {
+            return;
         }
+        final ChartResources resources = ChartResources.get(mContext);
+        resources.releaseTag(mTag);
+        resources.releaseTag(mTagReverse);
+        mTag = null;
+        mTagReverse = null;
+        mTagBitmap = null;
+        mTagBitmapReverse = null;
     }
 
     public int getTextColor() {
@@ -479,6 +2110,8 @@ public class SmoothLineChartView extends View {
 
     public void setTextColor(int mTextColor) {
         this.mTextColor = mTextColor;
+        mTextPaint.setColor(mTextColor);
+        invalidate();
     }
 
     public int getTextSize() {
@@ -487,6 +2120,13 @@ public class SmoothLineChartView extends View {
 
     public void setTextSize(int mTextSize) {
         this.mTextSize = mTextSize;
+        final int textSize = DensityUtils.sp2px(mContext, mTextSize);
+        mTextPaint.setTextSize(textSize);
+        mAxisTextPaint.setTextSize(textSize);
+        mTextWidths.clear();
+        mTextPaint.getFontMetricsInt(mFontMetrics);
+        mTextBaseline = (mFontMetrics.top - mFontMetrics.bottom) / 2 - mFontMetrics.top;
+        invalidateLayers();
     }
 
     public int getTextOffset() {
@@ -525,5 +2165,22 @@ public class SmoothLineChartView extends View {
     public void setBorder(float mBorder) {
         this.mBorder = mBorder;
         mCustomBorder = true;
+        markGeometryDirty();
+    }
+
+    /***
+     * 缓存数值转换后的文字，数值不变时不重新生成字符串
+     */
+    private static final class ValueText {
+        private float mValue;
+        private String mText;
+
+        String get(float value) {
+            if (mText == null || Float.floatToIntBits(value) != Float.floatToIntBits(mValue)) {
+                mValue = value;
+                mText = value + "";
+            }
+            return mText;
+        }
     }
 }
@@ -0,0 +1,55 @@
+package com.hymane.smoothchart;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-04-24
+ * Description: 文字宽度缓存，按字符串哈希直接定位，冲突时覆盖旧值，查询时不分配对象。
+ * 每个图表一个，只在UI线程或绘制线程访问；未命中时再查询所有图表共用的{@link ChartResources#textWidth(Paint, String)}，
+ * 其他图表测量过的文字不需要重新测量。画笔字号或字体变化后需要调用{@link #clear()}
+ */
+class TextWidthCache {
+    private static final int SIZE = 256;//必须是2的幂
+
+    private final ChartResources mShared;//可为空，为空时直接测量
+
+    private final String[] mTexts = new String[SIZE];
+    private final int[] mWidths = new int[SIZE];
+    private final Rect mBounds = new Rect();
+    int mHits;//命中次数，用于FrameMetrics
+    int mMisses;
+
+    TextWidthCache(ChartResources shared) {
+        mShared = shared;
+    }
+
+    /***
+     * 文字边界的宽度，与Paint.getTextBounds()的结果相同
+     */
+    int width(Paint paint, String text) {
+        final int slot = text.hashCode() & (SIZE - 1);
+        final String cached = mTexts[slot];
+        if (cached != null && (cached == text || cached.equals(text))) {
+            mHits++;
+            return mWidths[slot];
+        }
+        mMisses++;
+        if (mShared != null) {
+            mWidths[slot] = mShared.textWidth(paint, text);
+        } else {
+            paint.getTextBounds(text, 0, text.length(), mBounds);
+            mWidths[slot] = mBounds.width();
+        }
+        mTexts[slot] = text;
+        return mWidths[slot];
+    }
+
+    void clear() {
+        for (int i = 0; i < SIZE; i++) {
+            mTexts[i] = null;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.hymane.smoothchart;
+
+import android.graphics.Paint;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Author   :hymane
+ * Email    :hymanme@163.com
+ * Create at 2017-05-04
+ * Description: 时间轴刻度。按可见时间跨度和绘制宽度选择刻度间隔，刻度个数只取决于宽度，与节点个数无关。
+ * 格式化后的刻度文字按时间缓存，平移时已经出现过的刻度不再格式化。时间戳单位为毫秒
+ */
+class TimeTicks {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    //可选的刻度间隔，从小到大
+    private static final long[] STEPS = {
+            SECOND, 2 * SECOND, 5 * SECOND, 10 * SECOND, 15 * SECOND, 30 * SECOND,
+            MINUTE, 2 * MINUTE, 5 * MINUTE, 10 * MINUTE, 15 * MINUTE, 30 * MINUTE,
+            HOUR, 2 * HOUR, 3 * HOUR, 6 * HOUR, 12 * HOUR,
+            DAY, 2 * DAY, 7 * DAY, 14 * DAY, 30 * DAY, 91 * DAY, 182 * DAY, 365 * DAY};
+    //按刻度间隔使用的格式和估算宽度用的样例文字
+    private static final String[] PATTERNS = {"HH:mm:ss", "HH:mm", "MM-dd", "yyyy"};
+    private static final String[] SAMPLES = {"00:00:00", "00:00", "00-00", "0000"};
+    private static final float LABEL_GAP = 1.5f;//刻度间距至少为文字宽度的1.5倍
+    private static final int CACHE_SIZE = 64;//与散列取的高6位对应
+
+    private final TimeZone mTimeZone = TimeZone.getDefault();
+    private final Date mDate = new Date();
+    private final SimpleDateFormat[] mFormats = new SimpleDateFormat[PATTERNS.length];
+    private final float[] mSampleWidths = new float[PATTERNS.length];
+    private float mTextSize;
+    //刻度文字缓存，按时间直接定位，刻度格式变化时清空
+    private final long[] mCacheTimes = new long[CACHE_SIZE];
+    private final String[] mCacheLabels = new String[CACHE_SIZE];
+    private int mPattern = -1;
+
+    //刻度时间和文字，复用
+    long[] mTimes = new long[0];
+    String[] mLabels = new String[0];
+    int mCount;
+    private long mStart;
+    private long mEnd;
+    private float mWidth;
+
+    /***
+     * 更新[start, end]时间区间内的刻度，区间、宽度和字号都没变时直接返回
+     * @param width 绘制区域宽度
+     */
+    void update(long start, long end, float width, Paint paint) {
+        final float textSize = paint.getTextSize();
+        if (textSize != mTextSize) {
+            mTextSize = textSize;
+            for (int i = 0; i < SAMPLES.length; i++) {
+                mSampleWidths[i] = paint.measureText(SAMPLES[i]);
+            }
+        } else if (start == mStart && end == mEnd && width == mWidth) {
+            return;
+        }
+        mStart = start;
+        mEnd = end;
+        mWidth = width;
+        mCount = 0;
+        if (end <= start || width <= 0) {
+            return;
+        }
+        //选择文字不重叠的最小间隔
+        long step = STEPS[STEPS.length - 1];
+        int pattern = patternOf(step);
+        for (long candidate : STEPS) {
+            final int candidatePattern = patternOf(candidate);
+            if (candidate * width / (end - start) >= mSampleWidths[candidatePattern] * LABEL_GAP) {
+                step = candidate;
+                pattern = candidatePattern;
+                break;
+            }
+        }
+        if (pattern != mPattern) {
+            mPattern = pattern;
+            for (int i = 0; i < CACHE_SIZE; i++) {
+                mCacheLabels[i] = null;
+            }
+        }
+        //按本地时区对齐到整点、整天
+        final long offset = mTimeZone.getOffset(start);
+        long time = floorDiv(start + offset + step - 1, step) * step - offset;
+        final int capacity = (int) ((end - start) / step) + 2;
+        if (mTimes.length < capacity) {
+            mTimes = new long[capacity];
+            mLabels = new String[capacity];
+        }
+        for (; time <= end && mCount < capacity; time += step) {
+            mTimes[mCount] = time;
+            mLabels[mCount] = label(time);
+            mCount++;
+        }
+    }
+
+    /***
+     * 格式化刻度时间，命中缓存时不分配对象
+     */
+    private String label(long time) {
+        //斐波那契散列，等间隔的刻度时间均匀分布到各个位置
+        final int slot = (int) ((time * 0x9E3779B97F4A7C15L) >>> 58);
+        final String cached = mCacheLabels[slot];
+        if (cached != null && mCacheTimes[slot] == time) {
+            return cached;
+        }
+        SimpleDateFormat format = mFormats[mPattern];
+        if (format == null) {
+            format = new SimpleDateFormat(PATTERNS[mPattern], Locale.getDefault());
+            format.setTimeZone(mTimeZone);
+            mFormats[mPattern] = format;
+        }
+        mDate.setTime(time);
+        final String label = format.format(mDate);
+        mCacheTimes[slot] = time;
+        mCacheLabels[slot] = label;
+        return label;
+    }
+
+    private static int patternOf(long step) {
+        if (step < MINUTE) {
+            return 0;
+        } else if (step < DAY) {
+            return 1;
+        } else if (step < 365 * DAY) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private static long floorDiv(long x, long y) {
+        final long q = x / y;
+        return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+    }
+}
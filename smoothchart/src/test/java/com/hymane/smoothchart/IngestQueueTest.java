@@ -0,0 +1,141 @@
+package com.hymane.smoothchart;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * 无锁节点队列的本地测试，在开发机上运行。生产者和消费者线程同时运行，
+ * 检查节点按顺序取出、没有读到写了一半的节点，以及丢弃的节点数
+ */
+public class IngestQueueTest {
+    private static final int COUNT = 2000000;
+
+    @Test
+    public void offer_dropNewestWhenFull() throws Exception {
+        final IngestQueue queue = new IngestQueue(3, SmoothLineChartView.BACKPRESSURE_DROP_NEWEST);
+        assertEquals(4, queue.capacity());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i < 4, queue.offer(i, i));
+        }
+        assertEquals(2, queue.getDroppedCount());
+
+        final float[] values = new float[4];
+        final long[] times = new long[4];
+        assertEquals(4, queue.drain(values, times));
+        assertArrayEquals(new long[]{0, 1, 2, 3}, times);
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.drain(values, times));
+    }
+
+    @Test
+    public void offer_dropOldestWhenFull() throws Exception {
+        final IngestQueue queue = new IngestQueue(4, SmoothLineChartView.BACKPRESSURE_DROP_OLDEST);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(queue.offer(i, i));
+        }
+        assertEquals(2, queue.getDroppedCount());
+
+        final float[] values = new float[4];
+        final long[] times = new long[4];
+        assertEquals(4, queue.drain(values, times));
+        assertArrayEquals(new long[]{2, 3, 4, 5}, times);
+        assertArrayEquals(new float[]{2, 3, 4, 5}, values, 0);
+    }
+
+    @Test
+    public void concurrent_dropOldest() throws Exception {
+        final Result result = runConcurrently(SmoothLineChartView.BACKPRESSURE_DROP_OLDEST, 64);
+        //丢弃最旧节点时所有节点都入队，没有取出的节点都被丢弃
+        assertEquals(COUNT, result.mAccepted);
+        assertEquals(COUNT, result.mConsumed + result.mDropped);
+        assertEquals(COUNT - 1, result.mLast);
+    }
+
+    @Test
+    public void concurrent_dropNewest() throws Exception {
+        final Result result = runConcurrently(SmoothLineChartView.BACKPRESSURE_DROP_NEWEST, 64);
+        assertEquals(result.mAccepted, result.mConsumed);
+        assertEquals(COUNT - result.mAccepted, result.mDropped);
+    }
+
+    @Test
+    public void concurrent_capacityOne() throws Exception {
+        final Result oldest = runConcurrently(SmoothLineChartView.BACKPRESSURE_DROP_OLDEST, 1);
+        assertEquals(COUNT, oldest.mConsumed + oldest.mDropped);
+        final Result newest = runConcurrently(SmoothLineChartView.BACKPRESSURE_DROP_NEWEST, 1);
+        assertEquals(newest.mAccepted, newest.mConsumed);
+        assertEquals(COUNT - newest.mAccepted, newest.mDropped);
+    }
+
+    /***
+     * 生产者写入序号0到COUNT-1，时间戳等于序号，数值由序号算出；消费者同时取出并逐个检查
+     */
+    private static Result runConcurrently(int policy, int capacity) throws Exception {
+        final IngestQueue queue = new IngestQueue(capacity, policy);
+        final AtomicLong accepted = new AtomicLong(-1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long count = 0;
+                for (int i = 0; i < COUNT; i++) {
+                    if (queue.offer(valueOf(i), i)) {
+                        count++;
+                    }
+                }
+                accepted.set(count);
+            }
+        }, "IngestQueueTest-producer");
+        producer.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                failure.set(e);
+            }
+        });
+
+        final Result result = new Result();
+        final float[] values = new float[queue.capacity()];
+        final long[] times = new long[queue.capacity()];
+        result.mLast = -1;
+        producer.start();
+        while (true) {
+            //先判断生产者是否结束，再取出，保证最后一次取出能读到全部节点
+            final boolean done = !producer.isAlive();
+            final int count = queue.drain(values, times);
+            for (int i = 0; i < count; i++) {
+                final long seq = times[i];
+                assertEquals("torn slot at " + seq, valueOf(seq), values[i], 0);
+                assertTrue("out of order: " + seq + " after " + result.mLast, seq > result.mLast);
+                result.mLast = seq;
+            }
+            result.mConsumed += count;
+            if (done && count == 0) {
+                break;
+            }
+        }
+        producer.join();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertTrue(queue.isEmpty());
+        result.mAccepted = accepted.get();
+        result.mDropped = queue.getDroppedCount();
+        return result;
+    }
+
+    //低16位精确表示为float，数值和时间戳来自不同的写入时可以发现
+    private static float valueOf(long seq) {
+        return seq & 0xFFFF;
+    }
+
+    private static final class Result {
+        long mAccepted;
+        long mConsumed;
+        long mDropped;
+        long mLast;
+    }
+}
@@ -0,0 +1,135 @@
+package com.hymane.smoothchart;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 内存映射数据源的本地测试，在开发机上运行
+ */
+public class MappedSeriesSourceTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void open_readsValuesAndTimes() throws Exception {
+        final int count = 1000;
+        final float[] values = new float[count + 2];
+        final long[] times = new long[count + 2];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 0.5f;
+            times[i] = 1493856000000L + i * 1000L;
+        }
+        final File file = mFolder.newFile("series.bin");
+        MappedSeriesSource.write(file, values, times, 2, count);
+
+        final MappedSeriesSource source = MappedSeriesSource.open(file);
+        assertEquals(count, source.size());
+        assertTrue(source.hasTimes());
+        for (int i = 0; i < count; i++) {
+            assertEquals(values[i + 2], source.get(i), 0);
+            assertEquals(times[i + 2], source.getTime(i));
+        }
+        assertEquals(1f, source.min(), 0);
+        assertEquals((count + 1) * 0.5f, source.max(), 0);
+    }
+
+    @Test
+    public void open_withoutTimes() throws Exception {
+        final float[] values = {3, 1, 2};
+        final File file = mFolder.newFile("values.bin");
+        MappedSeriesSource.write(file, values, null, 0, values.length);
+
+        final MappedSeriesSource source = MappedSeriesSource.open(file);
+        assertFalse(source.hasTimes());
+        assertEquals(0, source.getTime(2));
+        assertEquals(1, source.minIndex(0, 3));
+        assertEquals(0, source.maxIndex(0, 3));
+    }
+
+    @Test
+    public void open_emptyFile() throws Exception {
+        final File file = mFolder.newFile("empty.bin");
+        MappedSeriesSource.write(file, new float[0], new long[0], 0, 0);
+
+        final MappedSeriesSource source = MappedSeriesSource.open(file);
+        assertEquals(0, source.size());
+        assertEquals(0, source.min(), 0);
+        assertEquals(0, source.max(), 0);
+    }
+
+    @Test
+    public void minMaxIndex_matchesLinearScan() throws Exception {
+        //节点个数不是块大小的整数倍，并且有重复值，测试最后不完整的块和相同值时返回靠前的节点
+        final int count = 200003;
+        final float[] values = new float[count];
+        final Random random = new Random(17);
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextInt(5000);
+        }
+        final File file = mFolder.newFile("random.bin");
+        MappedSeriesSource.write(file, values, null, 0, count);
+        final MappedSeriesSource source = MappedSeriesSource.open(file);
+
+        assertEquals(scan(values, 0, count, true), source.minIndex(0, count));
+        assertEquals(scan(values, 0, count, false), source.maxIndex(0, count));
+        for (int i = 0; i < 2000; i++) {
+            final int from = random.nextInt(count);
+            final int length = i % 2 == 0 ? random.nextInt(200) + 1 : random.nextInt(count - from) + 1;
+            final int to = Math.min(count, from + length);
+            assertEquals("min [" + from + ", " + to + ")", scan(values, from, to, true), source.minIndex(from, to));
+            assertEquals("max [" + from + ", " + to + ")", scan(values, from, to, false), source.maxIndex(from, to));
+        }
+    }
+
+    @Test
+    public void downsample_usesPyramid() throws Exception {
+        final int count = 100000;
+        final float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (float) Math.sin(i / 100.0);
+        }
+        values[54321] = 10;
+        final File file = mFolder.newFile("peak.bin");
+        MappedSeriesSource.write(file, values, null, 0, count);
+        final MappedSeriesSource source = MappedSeriesSource.open(file);
+
+        final int[] out = new int[2 * 300 + 2];
+        final int kept = Downsampler.minMax(source, 0, count, 300, out);
+        assertTrue(kept < count);
+        boolean peak = false;
+        for (int i = 0; i < kept; i++) {
+            peak |= out[i] == 54321;
+        }
+        assertTrue("peak should be kept", peak);
+    }
+
+    @Test(expected = IOException.class)
+    public void open_rejectsOtherFiles() throws Exception {
+        final File file = mFolder.newFile("other.bin");
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(64);
+        } finally {
+            raf.close();
+        }
+        MappedSeriesSource.open(file);
+    }
+
+    private static int scan(float[] values, int from, int to, boolean min) {
+        int best = from;
+        for (int i = from + 1; i < to; i++) {
+            if (min ? values[i] < values[best] : values[i] > values[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,128 @@
+package com.hymane.smoothchart;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 线段树的本地测试，在开发机上运行，每次修改后与逐个遍历的结果比较
+ */
+public class MinMaxTreeTest {
+
+    @Test
+    public void empty() throws Exception {
+        final MinMaxTree tree = new MinMaxTree();
+        assertEquals(0, tree.size());
+        assertEquals(Float.POSITIVE_INFINITY, tree.min(), 0);
+        assertEquals(Float.NEGATIVE_INFINITY, tree.max(), 0);
+    }
+
+    @Test
+    public void find_equalValuesReturnsFirst() throws Exception {
+        final MinMaxTree tree = new MinMaxTree();
+        final float[] values = {3, 1, 5, 1, 5, 3};
+        tree.build(values, 0, values.length);
+        assertEquals(1, tree.minIndex(0, 6));
+        assertEquals(3, tree.minIndex(2, 6));
+        assertEquals(2, tree.maxIndex(0, 6));
+        assertEquals(4, tree.maxIndex(3, 6));
+        assertEquals(5, tree.maxIndex(5, 6));
+    }
+
+    @Test
+    public void randomOperations_matchBruteForce() throws Exception {
+        final Random random = new Random(20170418);
+        final MinMaxTree tree = new MinMaxTree();
+        final List<Float> reference = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            final int size = reference.size();
+            final int op = random.nextInt(7);
+            if (op == 0 || size == 0) {
+                final float value = random.nextInt(50);
+                tree.append(value);
+                reference.add(value);
+            } else if (op == 1) {
+                final float[] values = randomValues(random, random.nextInt(40));
+                final int offset = random.nextInt(values.length + 1);
+                final int count = random.nextInt(values.length - offset + 1);
+                tree.appendAll(values, offset, count);
+                for (int i = 0; i < count; i++) {
+                    reference.add(values[offset + i]);
+                }
+            } else if (op == 2) {
+                final int index = random.nextInt(size);
+                final float value = random.nextInt(50);
+                tree.set(index, value);
+                reference.set(index, value);
+            } else if (op == 3) {
+                //删除尾部或中间的节点
+                final int index = random.nextBoolean() ? size - 1 : random.nextInt(size);
+                tree.remove(index);
+                reference.remove(index);
+            } else if (op == 4) {
+                final int from = random.nextInt(size + 1);
+                final int to = from + random.nextInt(Math.min(size - from, 20) + 1);
+                tree.removeRange(from, to);
+                reference.subList(from, to).clear();
+            } else if (op == 5 && random.nextInt(20) == 0) {
+                final float[] values = randomValues(random, random.nextInt(300));
+                tree.build(values, 0, values.length);
+                reference.clear();
+                for (float value : values) {
+                    reference.add(value);
+                }
+            } else if (op == 6 && random.nextInt(50) == 0) {
+                tree.clear();
+                reference.clear();
+            }
+            assertMatches(random, tree, reference);
+        }
+    }
+
+    private static void assertMatches(Random random, MinMaxTree tree, List<Float> reference) {
+        final int size = reference.size();
+        assertEquals(size, tree.size());
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, reference.get(i));
+            max = Math.max(max, reference.get(i));
+        }
+        assertEquals(min, tree.min(), 0);
+        assertEquals(max, tree.max(), 0);
+        if (size == 0) {
+            return;
+        }
+        for (int i = 0; i < 5; i++) {
+            final int from = random.nextInt(size);
+            final int to = from + 1 + random.nextInt(size - from);
+            assertEquals("minIndex(" + from + ", " + to + ")", bruteIndex(reference, from, to, true), tree.minIndex(from, to));
+            assertEquals("maxIndex(" + from + ", " + to + ")", bruteIndex(reference, from, to, false), tree.maxIndex(from, to));
+        }
+    }
+
+    /***
+     * 逐个遍历[from, to)，值相同时返回靠前的位置
+     */
+    static int bruteIndex(List<Float> values, int from, int to, boolean min) {
+        int index = from;
+        for (int i = from + 1; i < to; i++) {
+            if (min ? values.get(i) < values.get(index) : values.get(i) > values.get(index)) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private static float[] randomValues(Random random, int count) {
+        final float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextInt(50);
+        }
+        return values;
+    }
+}
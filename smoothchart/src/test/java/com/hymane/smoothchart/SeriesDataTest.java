@@ -0,0 +1,266 @@
+package com.hymane.smoothchart;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 节点数据的本地测试，在开发机上运行。环形缓冲区淘汰、批量追加、删除和区间最值查询
+ * 每次修改后与逐个遍历的结果比较，包括跨过数组末尾的区间
+ */
+public class SeriesDataTest {
+
+    @Test
+    public void window_evictsOldestAndWraps() throws Exception {
+        final SeriesData data = new SeriesData();
+        data.setWindowSize(8);
+        for (int i = 0; i < 13; i++) {
+            assertEquals(i >= 8, data.add(i == 3 || i == 9 ? -1 : i, "x" + i));
+        }
+        //保留5到12，物理位置从5开始跨过数组末尾
+        assertEquals(8, data.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals("x" + (i + 5), data.getLabel(i));
+        }
+        assertEquals(4, data.minIndex(0, 8));
+        assertEquals(4, data.minIndex(2, 6));
+        assertEquals(7, data.maxIndex(0, 8));
+        assertEquals(2, data.maxIndex(0, 3));
+        assertEquals(-1, data.min(), 0);
+        assertEquals(12, data.max(), 0);
+    }
+
+    @Test
+    public void window_equalValuesAcrossWrapReturnsFirst() throws Exception {
+        final SeriesData data = new SeriesData();
+        data.setWindowSize(4);
+        final float[] values = {9, 9, 1, 5, 1, 5};
+        data.addAll(values, 0, values.length, null);
+        //节点1, 5, 1, 5，前两个在数组末尾，后两个在数组开头
+        assertEquals(0, data.minIndex(0, 4));
+        assertEquals(1, data.maxIndex(0, 4));
+        assertEquals(2, data.minIndex(1, 4));
+    }
+
+    @Test
+    public void push_keepsTimesAcrossWrap() throws Exception {
+        final SeriesData data = new SeriesData();
+        data.setWindowSize(8);
+        for (int i = 0; i < 20; i++) {
+            data.push(i, i * 10L);
+        }
+        assertTrue(data.hasTimes());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i + 12, data.get(i), 0);
+            assertEquals((i + 12) * 10L, data.getTime(i));
+        }
+        data.removeRange(2, 5);
+        assertEquals(5, data.size());
+        assertEquals(170L, data.getTime(2));
+    }
+
+    @Test
+    public void snapshot_copiesWrappedValuesAndTimes() throws Exception {
+        final SeriesData data = new SeriesData();
+        data.setWindowSize(10);
+        for (int i = 0; i < 17; i++) {
+            data.push(i * 7 % 11, i * 5L);
+        }
+        final SeriesData snapshot = new SeriesData();
+        assertTrue(data.snapshotTo(snapshot));
+        snapshot.buildRange();
+        assertEquals(10, snapshot.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(data.get(i), snapshot.get(i), 0);
+            assertEquals(data.getTime(i), snapshot.getTime(i));
+        }
+        for (int from = 0; from < 10; from++) {
+            for (int to = from + 1; to <= 10; to++) {
+                assertEquals(data.minIndex(from, to), snapshot.minIndex(from, to));
+                assertEquals(data.maxIndex(from, to), snapshot.maxIndex(from, to));
+            }
+        }
+        //数据没变时不复制
+        assertFalse(data.snapshotTo(snapshot));
+        data.push(3, 100);
+        assertTrue(data.snapshotTo(snapshot));
+        assertEquals(100L, snapshot.getTime(9));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void push_rejectsEarlierTime() throws Exception {
+        final SeriesData data = new SeriesData();
+        data.push(1, 100);
+        data.push(2, 99);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void add_rejectsValueWithoutTimeAfterPush() throws Exception {
+        final SeriesData data = new SeriesData();
+        data.push(1, 100);
+        data.add(2, null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void push_rejectsTimeAfterValuesWithoutTime() throws Exception {
+        final SeriesData data = new SeriesData();
+        data.add(1, null);
+        data.push(2, 100);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addAll_rejectsValuesWithoutTimeAfterPush() throws Exception {
+        final SeriesData data = new SeriesData();
+        data.push(1, 100);
+        data.addAll(new float[]{2, 3}, 0, 2, null);
+    }
+
+    @Test
+    public void add_afterRemovingTimedValues() throws Exception {
+        final SeriesData data = new SeriesData();
+        data.push(1, 100);
+        data.removeRange(0, 1);
+        data.add(2, null);
+        assertFalse(data.hasTimes());
+        assertEquals(2, data.get(0), 0);
+    }
+
+    @Test
+    public void randomOperations_unbounded() throws Exception {
+        runRandomOperations(new Random(20170419), 0);
+    }
+
+    @Test
+    public void randomOperations_windowed() throws Exception {
+        runRandomOperations(new Random(20170420), 16);
+    }
+
+    private static void runRandomOperations(Random random, int windowSize) {
+        final SeriesData data = new SeriesData();
+        final Reference reference = new Reference();
+        data.setWindowSize(windowSize);
+        reference.mWindowSize = windowSize;
+        for (int step = 0; step < 5000; step++) {
+            final int size = reference.size();
+            final int op = random.nextInt(8);
+            if (op <= 1 || size == 0) {
+                final float value = random.nextInt(30);
+                final String label = "x" + step;
+                assertEquals(reference.add(value, label) > 0, data.add(value, label));
+            } else if (op == 2) {
+                final int count = random.nextInt(40);
+                final int offset = random.nextInt(5);
+                final float[] values = new float[offset + count];
+                final String[] labels = random.nextBoolean() ? null : new String[count];
+                int evicted = 0;
+                for (int i = 0; i < count; i++) {
+                    values[offset + i] = random.nextInt(30);
+                    if (labels != null) {
+                        labels[i] = "b" + step + "-" + i;
+                    }
+                    evicted += reference.add(values[offset + i], labels == null ? null : labels[i]);
+                }
+                assertEquals(evicted, data.addAll(values, offset, count, labels));
+            } else if (op == 3) {
+                final int index = random.nextInt(size);
+                final float value = random.nextInt(30);
+                data.replace(index, value);
+                reference.mValues.set(index, value);
+            } else if (op == 4) {
+                final int index = random.nextInt(size);
+                data.remove(index);
+                reference.mValues.remove(index);
+                reference.mLabels.remove(index);
+            } else if (op == 5) {
+                final int from = random.nextInt(size + 1);
+                final int to = from + random.nextInt(Math.min(size - from, 10) + 1);
+                data.removeRange(from, to);
+                reference.mValues.subList(from, to).clear();
+                reference.mLabels.subList(from, to).clear();
+            } else if (op == 6 && random.nextInt(30) == 0) {
+                final int window = windowSize == 0 ? 0 : 1 + random.nextInt(2 * windowSize);
+                data.setWindowSize(window);
+                reference.setWindowSize(window);
+            } else if (op == 7 && random.nextInt(30) == 0) {
+                final float[] values = new float[random.nextInt(60)];
+                final String[] labels = new String[values.length];
+                reference.mValues.clear();
+                reference.mLabels.clear();
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = random.nextInt(30);
+                    labels[i] = "s" + step + "-" + i;
+                    reference.add(values[i], labels[i]);
+                }
+                data.set(values, 0, values.length, labels);
+            }
+            assertMatches(random, data, reference);
+        }
+    }
+
+    private static void assertMatches(Random random, SeriesData data, Reference reference) {
+        final int size = reference.size();
+        assertEquals(size, data.size());
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            assertEquals(reference.mValues.get(i), data.get(i), 0);
+            assertEquals(reference.mLabels.get(i), data.getLabel(i));
+            min = Math.min(min, reference.mValues.get(i));
+            max = Math.max(max, reference.mValues.get(i));
+        }
+        assertEquals(min, data.min(), 0);
+        assertEquals(max, data.max(), 0);
+        if (size == 0) {
+            return;
+        }
+        assertEquals(MinMaxTreeTest.bruteIndex(reference.mValues, 0, size, true), data.minIndex(0, size));
+        assertEquals(MinMaxTreeTest.bruteIndex(reference.mValues, 0, size, false), data.maxIndex(0, size));
+        for (int i = 0; i < 5; i++) {
+            final int from = random.nextInt(size);
+            final int to = from + 1 + random.nextInt(size - from);
+            assertEquals("minIndex(" + from + ", " + to + ")",
+                    MinMaxTreeTest.bruteIndex(reference.mValues, from, to, true), data.minIndex(from, to));
+            assertEquals("maxIndex(" + from + ", " + to + ")",
+                    MinMaxTreeTest.bruteIndex(reference.mValues, from, to, false), data.maxIndex(from, to));
+        }
+    }
+
+    /***
+     * 用列表实现的参考模型，窗口满时删除第一个节点
+     */
+    private static final class Reference {
+        final List<Float> mValues = new ArrayList<>();
+        final List<String> mLabels = new ArrayList<>();
+        int mWindowSize;
+
+        int size() {
+            return mValues.size();
+        }
+
+        /***
+         * @return 淘汰的节点个数
+         */
+        int add(float value, String label) {
+            mValues.add(value);
+            mLabels.add(label);
+            if (mWindowSize > 0 && mValues.size() > mWindowSize) {
+                mValues.remove(0);
+                mLabels.remove(0);
+                return 1;
+            }
+            return 0;
+        }
+
+        void setWindowSize(int windowSize) {
+            mWindowSize = windowSize;
+            while (windowSize > 0 && mValues.size() > windowSize) {
+                mValues.remove(0);
+                mLabels.remove(0);
+            }
+        }
+    }
+}